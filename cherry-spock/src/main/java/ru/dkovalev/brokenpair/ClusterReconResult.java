@@ -0,0 +1,98 @@
+package ru.dkovalev.brokenpair;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Stats of a status on every node of a cluster, compared with the stats most nodes agree on.
+ */
+public class ClusterReconResult {
+
+    private final Map<String, JobStats> statsByNode;
+    private final JobStats consensus;
+    private final Set<String> disagreeingNodes;
+
+    private ClusterReconResult(Map<String, JobStats> statsByNode, JobStats consensus, Set<String> disagreeingNodes) {
+        this.statsByNode = statsByNode;
+        this.consensus = consensus;
+        this.disagreeingNodes = disagreeingNodes;
+    }
+
+    /**
+     * @param statsByNode stats of every node, null for a node without the status
+     */
+    public static ClusterReconResult of(Map<String, JobStats> statsByNode) {
+        Map<String, JobStats> copy = Collections.unmodifiableMap(new LinkedHashMap<>(statsByNode));
+        // stats in the order of the first node having them, so on a tie the stats of the earlier node win
+        Map<JobStats, Integer> votes = new LinkedHashMap<>();
+        for (JobStats stats : copy.values()) {
+            votes.merge(stats, 1, Integer::sum);
+        }
+        JobStats consensus = null;
+        int consensusVotes = 0;
+        for (Map.Entry<JobStats, Integer> vote : votes.entrySet()) {
+            if (vote.getValue() > consensusVotes) {
+                consensus = vote.getKey();
+                consensusVotes = vote.getValue();
+            }
+        }
+        Set<String> disagreeingNodes = new LinkedHashSet<>();
+        for (Map.Entry<String, JobStats> node : copy.entrySet()) {
+            if (!Objects.equals(node.getValue(), consensus)) {
+                disagreeingNodes.add(node.getKey());
+            }
+        }
+        return new ClusterReconResult(copy, consensus, Collections.unmodifiableSet(disagreeingNodes));
+    }
+
+    /**
+     * @return stats by node in the order of nodes, null for a node without the status
+     */
+    public Map<String, JobStats> getStatsByNode() {
+        return statsByNode;
+    }
+
+    /**
+     * @return stats of most nodes, null if most nodes lack the status
+     */
+    public JobStats getConsensus() {
+        return consensus;
+    }
+
+    /**
+     * @return nodes whose stats differ from the consensus, in the order of nodes
+     */
+    public Set<String> getDisagreeingNodes() {
+        return disagreeingNodes;
+    }
+
+    public boolean isConsistent() {
+        return disagreeingNodes.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ClusterReconResult that = (ClusterReconResult) o;
+        return statsByNode.equals(that.statsByNode);
+    }
+
+    @Override
+    public int hashCode() {
+        return statsByNode.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterReconResult{" +
+                "statsByNode=" + statsByNode +
+                ", consensus=" + consensus +
+                ", disagreeingNodes=" + disagreeingNodes +
+                '}';
+    }
+}
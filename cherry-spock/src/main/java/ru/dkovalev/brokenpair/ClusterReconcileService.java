@@ -0,0 +1,97 @@
+package ru.dkovalev.brokenpair;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Reconciles stats of many nodes at once, e.g. schedulers of a cluster, fetching each node once
+ * instead of comparing nodes pairwise with {@link ReconcileService}.
+ */
+public class ClusterReconcileService {
+
+    private final Map<String, JobService> nodes;
+
+    /**
+     * @param nodes services by node name, the order of nodes is kept in results
+     */
+    public ClusterReconcileService(Map<String, JobService> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Nodes must not be empty");
+        }
+        this.nodes = new LinkedHashMap<>(nodes);
+        this.nodes.values().forEach(Objects::requireNonNull);
+    }
+
+    public Map<String, ClusterReconResult> reconcile() {
+        List<Map<String, JobStats>> statsOfNodes = new ArrayList<>(nodes.size());
+        for (JobService node : nodes.values()) {
+            statsOfNodes.add(node.getStatsByStatus());
+        }
+        return reconcile(statsOfNodes);
+    }
+
+    /**
+     * Fetches stats of all nodes concurrently on the executor, so latency is the slowest call instead of the sum.
+     * <p/>
+     * As in {@link ReconcileService#reconcileAsync(Executor, Duration, Duration)} a node not responding
+     * in the timeout or failing fails the result right away, interrupting calls still running.
+     */
+    public CompletableFuture<Map<String, ClusterReconResult>> reconcileAsync(Executor executor, Duration timeout) {
+        Objects.requireNonNull(executor);
+        List<CompletableFuture<Map<String, JobStats>>> statsOfNodes = new ArrayList<>(nodes.size());
+        for (JobService node : nodes.values()) {
+            statsOfNodes.add(ReconcileService.fetch(node, executor, timeout));
+        }
+
+        CompletableFuture<Map<String, ClusterReconResult>> result = new CompletableFuture<>();
+        statsOfNodes.forEach(stats -> stats.whenComplete((s, e) -> ReconcileService.failOn(e, result)));
+        CompletableFuture.allOf(statsOfNodes.toArray(new CompletableFuture<?>[0])).whenComplete((nothing, e) -> {
+            if (e == null) {
+                List<Map<String, JobStats>> fetched = new ArrayList<>(statsOfNodes.size());
+                statsOfNodes.forEach(stats -> fetched.add(stats.join()));
+                try {
+                    result.complete(reconcile(fetched));
+                } catch (RuntimeException reconcileError) {
+                    result.completeExceptionally(reconcileError);
+                }
+            }
+        });
+        result.whenComplete((reconciled, e) -> {
+            if (e != null) {
+                statsOfNodes.forEach(stats -> stats.cancel(true));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Groups stats by status in one pass over all nodes.
+     */
+    private Map<String, ClusterReconResult> reconcile(List<Map<String, JobStats>> statsOfNodes) {
+        int nodeCount = statsOfNodes.size();
+        Map<String, JobStats[]> statsByStatus = new HashMap<>();
+        for (int node = 0; node < nodeCount; node++) {
+            for (Map.Entry<String, JobStats> stats : statsOfNodes.get(node).entrySet()) {
+                statsByStatus.computeIfAbsent(stats.getKey(), s -> new JobStats[nodeCount])[node] = stats.getValue();
+            }
+        }
+
+        String[] names = nodes.keySet().toArray(new String[0]);
+        Map<String, ClusterReconResult> results = new HashMap<>();
+        statsByStatus.forEach((status, stats) -> {
+            Map<String, JobStats> statsByNode = new LinkedHashMap<>();
+            for (int node = 0; node < nodeCount; node++) {
+                statsByNode.put(names[node], stats[node]);
+            }
+            results.put(status, ClusterReconResult.of(statsByNode));
+        });
+        return results;
+    }
+}
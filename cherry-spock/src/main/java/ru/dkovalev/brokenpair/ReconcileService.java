@@ -1,9 +1,14 @@
 package ru.dkovalev.brokenpair;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
@@ -22,9 +27,79 @@ public class ReconcileService<R> {
     }
 
     public Map<String, R> reconcile() {
-        Map<String, JobStats> leftStats = left.getStatsByStatus();
-        Map<String, JobStats> rightStats = right.getStatsByStatus();
+        return reconcile(left.getStatsByStatus(), right.getStatsByStatus());
+    }
+
+    public CompletableFuture<Map<String, R>> reconcileAsync(Executor executor, Duration timeout) {
+        return reconcileAsync(executor, timeout, timeout);
+    }
+
+    /**
+     * Fetches stats of both sides concurrently on the executor, so latency is the slower call instead of the sum.
+     * <p/>
+     * A side not responding in its timeout fails the result with {@link java.util.concurrent.TimeoutException}.
+     * When a side fails the result fails right away. Cancelling the result, a timeout or a failure interrupts
+     * calls still running.
+     */
+    public CompletableFuture<Map<String, R>> reconcileAsync(Executor executor, Duration leftTimeout, Duration rightTimeout) {
+        Objects.requireNonNull(executor);
+        CompletableFuture<Map<String, JobStats>> leftStats = fetch(left, executor, leftTimeout);
+        CompletableFuture<Map<String, JobStats>> rightStats = fetch(right, executor, rightTimeout);
+
+        CompletableFuture<Map<String, R>> result = new CompletableFuture<>();
+        // thenCombine waits for both sides even when one has failed
+        leftStats.whenComplete((stats, e) -> failOn(e, result));
+        rightStats.whenComplete((stats, e) -> failOn(e, result));
+        leftStats.thenCombine(rightStats, this::reconcile).whenComplete((reconciled, e) -> {
+            if (e == null) {
+                result.complete(reconciled);
+            } else {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((reconciled, e) -> {
+            if (e != null) {
+                leftStats.cancel(true);
+                rightStats.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    static void failOn(Throwable e, CompletableFuture<?> result) {
+        if (e != null) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * The call runs as a {@link FutureTask}, so completing the returned future early interrupts it.
+     */
+    static CompletableFuture<Map<String, JobStats>> fetch(JobService side, Executor executor, Duration timeout) {
+        CompletableFuture<Map<String, JobStats>> stats = new CompletableFuture<>();
+        FutureTask<Void> call = new FutureTask<>(() -> {
+            try {
+                stats.complete(side.getStatsByStatus());
+            } catch (Throwable e) {
+                stats.completeExceptionally(e);
+            }
+            return null;
+        });
+        stats.whenComplete((result, e) -> {
+            if (e != null) {
+                call.cancel(true);
+            }
+        });
+        stats.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        try {
+            executor.execute(call);
+        } catch (RuntimeException e) {
+            stats.completeExceptionally(e);
+        }
+        return stats;
+    }
 
+    private Map<String, R> reconcile(Map<String, JobStats> leftStats, Map<String, JobStats> rightStats) {
         Set<String> statuses = new HashSet<>();
         statuses.addAll(leftStats.keySet());
         statuses.addAll(rightStats.keySet());
@@ -0,0 +1,26 @@
+package ru.dkovalev.brokenpair;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Job service streaming its stats, e.g. from a database cursor, so they are never held in memory at once.
+ */
+public interface SortedJobService extends JobService {
+
+    /**
+     * @return stats sorted by status in natural order, each status once; closed by the caller
+     */
+    Stream<Map.Entry<String, JobStats>> streamStatsByStatus();
+
+    @Override
+    default Map<String, JobStats> getStatsByStatus() {
+        try (Stream<Map.Entry<String, JobStats>> stats = streamStatsByStatus()) {
+            return stats.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> {
+                throw new IllegalStateException("Duplicate status stats: " + a + ", " + b);
+            }, LinkedHashMap::new));
+        }
+    }
+}
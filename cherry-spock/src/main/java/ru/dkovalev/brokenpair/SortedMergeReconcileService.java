@@ -0,0 +1,83 @@
+package ru.dkovalev.brokenpair;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Reconciles stats streamed by both sides with a sorted merge join, results are passed on as statuses are matched.
+ * Memory does not depend on the number of statuses, unlike {@link ReconcileService} holding both sides and the result.
+ */
+public class SortedMergeReconcileService<R> {
+
+    private final SortedJobService left;
+    private final SortedJobService right;
+    private final BiFunction<JobStats, JobStats, R> reconResultSupplier;
+
+    public SortedMergeReconcileService(SortedJobService left,
+                                       SortedJobService right,
+                                       BiFunction<JobStats, JobStats, R> reconResultSupplier) {
+        this.left = Objects.requireNonNull(left);
+        this.right = Objects.requireNonNull(right);
+        this.reconResultSupplier = Objects.requireNonNull(reconResultSupplier);
+    }
+
+    /**
+     * Passes results to the consumer in status order, stats missing on a side are null as in {@link ReconcileService}.
+     *
+     * @throws IllegalStateException if a side is not sorted by status or repeats a status
+     */
+    public void reconcile(BiConsumer<String, R> consumer) {
+        Objects.requireNonNull(consumer);
+        try (Stream<Map.Entry<String, JobStats>> leftStream = left.streamStatsByStatus();
+             Stream<Map.Entry<String, JobStats>> rightStream = right.streamStatsByStatus()) {
+            Cursor leftStats = new Cursor("left", leftStream.iterator());
+            Cursor rightStats = new Cursor("right", rightStream.iterator());
+            while (leftStats.current != null || rightStats.current != null) {
+                int cmp = leftStats.current == null ? 1
+                        : rightStats.current == null ? -1
+                        : leftStats.current.getKey().compareTo(rightStats.current.getKey());
+                if (cmp < 0) {
+                    consumer.accept(leftStats.current.getKey(), reconResultSupplier.apply(leftStats.current.getValue(), null));
+                    leftStats.advance();
+                } else if (cmp > 0) {
+                    consumer.accept(rightStats.current.getKey(), reconResultSupplier.apply(null, rightStats.current.getValue()));
+                    rightStats.advance();
+                } else {
+                    consumer.accept(leftStats.current.getKey(),
+                            reconResultSupplier.apply(leftStats.current.getValue(), rightStats.current.getValue()));
+                    leftStats.advance();
+                    rightStats.advance();
+                }
+            }
+        }
+    }
+
+    /**
+     * Head of a side's stats, checking they ascend.
+     */
+    private static final class Cursor {
+
+        private final String side;
+        private final Iterator<Map.Entry<String, JobStats>> stats;
+        private Map.Entry<String, JobStats> current;
+
+        Cursor(String side, Iterator<Map.Entry<String, JobStats>> stats) {
+            this.side = side;
+            this.stats = stats;
+            this.current = stats.hasNext() ? stats.next() : null;
+        }
+
+        void advance() {
+            Map.Entry<String, JobStats> next = stats.hasNext() ? stats.next() : null;
+            if (next != null && next.getKey().compareTo(current.getKey()) <= 0) {
+                throw new IllegalStateException(String.format("Stats of %s side are not sorted by status: %s after %s",
+                        side, next.getKey(), current.getKey()));
+            }
+            current = next;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ru.dkovalev.brokenpair
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class ClusterReconcileServiceSpec extends Specification {
+
+    @AutoCleanup('shutdownNow')
+    def executor = Executors.newCachedThreadPool()
+
+    def "finds nodes disagreeing with the others"() {
+        given:
+        def service = service(
+                "node-1": { ["Completed": stats(3), "Failed": stats(1)] },
+                "node-2": { ["Completed": stats(3)] },
+                "node-3": { ["Completed": stats(2), "Failed": stats(1)] })
+
+        when:
+        def results = service.reconcile()
+
+        then:
+        results.keySet() == ["Completed", "Failed"] as Set
+        with(results["Completed"]) {
+            consensus == stats(3)
+            disagreeingNodes as List == ["node-3"]
+            statsByNode == ["node-1": stats(3), "node-2": stats(3), "node-3": stats(2)]
+        }
+        with(results["Failed"]) {
+            consensus == stats(1)
+            disagreeingNodes as List == ["node-2"]
+            statsByNode == ["node-1": stats(1), "node-2": null, "node-3": stats(1)]
+        }
+    }
+
+    def "agrees when all nodes have the same stats"() {
+        given:
+        def service = service("node-1": { ["Completed": stats(3)] }, "node-2": { ["Completed": stats(3)] })
+
+        expect:
+        service.reconcile()["Completed"].consistent
+    }
+
+    def "breaks a tie by the order of nodes"() {
+        when:
+        def result = ClusterReconResult.of(["node-1": null, "node-2": stats(3)])
+
+        then:
+        result.consensus == null
+        result.disagreeingNodes as List == ["node-2"]
+    }
+
+    def "breaks a 2-2 tie by the earliest node"() {
+        when:
+        def result = ClusterReconResult.of(["node-a": stats(1), "node-b": stats(2), "node-c": stats(2), "node-d": stats(1)])
+
+        then:
+        result.consensus == stats(1)
+        result.disagreeingNodes as List == ["node-b", "node-c"]
+    }
+
+    def "fetches all nodes concurrently"() {
+        given: "each node waits for all nodes to be called"
+        def allCalled = new CountDownLatch(8)
+        def service = service((1..8).collectEntries {
+            ["node-$it".toString(), { allCalled.countDown(); allCalled.await(); ["Completed": stats(3)] }]
+        })
+
+        when:
+        def results = service.reconcileAsync(executor, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS)
+
+        then:
+        results["Completed"].consistent
+        results["Completed"].statsByNode.size() == 8
+    }
+
+    def "fails on timeout of a node and interrupts it"() {
+        given:
+        def interrupted = new CountDownLatch(1)
+        def service = service(
+                "node-1": { ["Completed": stats(3)] },
+                "node-2": { sleepUntilInterrupted(interrupted) })
+
+        when:
+        service.reconcileAsync(executor, Duration.ofMillis(100)).get(5, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof TimeoutException
+        interrupted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "fails fast on failure of a node and interrupts the others"() {
+        given: "the first node fails once the others are called"
+        def othersCalled = new CountDownLatch(2)
+        def interrupted = new CountDownLatch(2)
+        def service = service(
+                "node-1": { othersCalled.await(); throw new IllegalStateException("scheduler is down") },
+                "node-2": { othersCalled.countDown(); sleepUntilInterrupted(interrupted) },
+                "node-3": { othersCalled.countDown(); sleepUntilInterrupted(interrupted) })
+
+        when:
+        service.reconcileAsync(executor, Duration.ofSeconds(30)).get(5, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof IllegalStateException
+        interrupted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "requires nodes"() {
+        when:
+        new ClusterReconcileService([:])
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    /**
+     * Spock mocks serialize invocations, so concurrently called nodes are plain closures.
+     */
+    private static ClusterReconcileService service(Map<String, Closure<Map<String, JobStats>>> nodes) {
+        new ClusterReconcileService(nodes.collectEntries(new LinkedHashMap()) { name, node -> [name, node as JobService] })
+    }
+
+    private static Map<String, JobStats> sleepUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(60_000)
+        } catch (InterruptedException ignored) {
+            interrupted.countDown()
+        }
+        return [:]
+    }
+
+    private static JobStats stats(int count) {
+        new JobStats(count: count, duration: 10)
+    }
+}
@@ -0,0 +1,122 @@
+package ru.dkovalev.brokenpair
+
+import spock.lang.AutoCleanup
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+
+class ReconcileServiceSpec extends Specification {
+
+    @AutoCleanup('shutdownNow')
+    def executor = Executors.newCachedThreadPool()
+
+    def "reconciles statuses of both sides"() {
+        given:
+        def service = service({ ["Completed": stats(3), "Failed": stats(1)] }, { ["Completed": stats(3)] })
+
+        expect:
+        service.reconcile() == [
+                "Completed": ReconResult.of(stats(3), stats(3)),
+                "Failed"   : ReconResult.of(stats(1), null)]
+    }
+
+    def "fetches both sides concurrently"() {
+        given: "each side waits for the other to be called"
+        def bothCalled = new CountDownLatch(2)
+        def service = service(
+                { bothCalled.countDown(); bothCalled.await(); ["Completed": stats(3)] },
+                { bothCalled.countDown(); bothCalled.await(); ["Completed": stats(2)] })
+
+        expect:
+        service.reconcileAsync(executor, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS) == [
+                "Completed": ReconResult.of(stats(3), stats(2))]
+    }
+
+    def "fails on timeout of a side and interrupts it"() {
+        given:
+        def interrupted = new CountDownLatch(1)
+        def service = service({ ["Completed": stats(3)] }, { sleepUntilInterrupted(interrupted) })
+
+        when:
+        service.reconcileAsync(executor, Duration.ofSeconds(5), Duration.ofMillis(100)).get(5, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof TimeoutException
+        interrupted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "fails fast on failure of a side and interrupts the other"() {
+        given: "the left side fails once the right one is called, a call not started yet is just cancelled"
+        def rightCalled = new CountDownLatch(1)
+        def interrupted = new CountDownLatch(1)
+        def service = service(
+                { rightCalled.await(); throw new IllegalStateException("scheduler is down") },
+                { rightCalled.countDown(); sleepUntilInterrupted(interrupted) })
+
+        when:
+        service.reconcileAsync(executor, Duration.ofSeconds(30)).get(5, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof IllegalStateException
+        interrupted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "interrupts both sides on cancellation"() {
+        given:
+        def interrupted = new CountDownLatch(2)
+        def service = service({ sleepUntilInterrupted(interrupted) }, { sleepUntilInterrupted(interrupted) })
+        def result = service.reconcileAsync(executor, Duration.ofSeconds(30))
+
+        when:
+        Thread.sleep(100)
+        result.cancel(true)
+        result.get()
+
+        then:
+        thrown(CancellationException)
+        interrupted.await(5, TimeUnit.SECONDS)
+    }
+
+    def "fails when the executor rejects a call"() {
+        given:
+        def service = service({ [:] }, { [:] })
+        executor.shutdown()
+
+        when:
+        service.reconcileAsync(executor, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS)
+
+        then:
+        def e = thrown(ExecutionException)
+        e.cause instanceof RejectedExecutionException
+    }
+
+    /**
+     * Spock mocks serialize invocations, so concurrently called sides are plain closures.
+     */
+    private static ReconcileService<ReconResult<JobStats>> service(Closure<Map<String, JobStats>> left,
+                                                                   Closure<Map<String, JobStats>> right) {
+        new ReconcileService<>(left as JobService, right as JobService, { l, r -> ReconResult.of(l, r) })
+    }
+
+    private static Map<String, JobStats> sleepUntilInterrupted(CountDownLatch interrupted) {
+        try {
+            Thread.sleep(60_000)
+        } catch (InterruptedException ignored) {
+            interrupted.countDown()
+        }
+        return [:]
+    }
+
+    private static JobStats stats(int count) {
+        new JobStats(count: count, duration: 10)
+    }
+}
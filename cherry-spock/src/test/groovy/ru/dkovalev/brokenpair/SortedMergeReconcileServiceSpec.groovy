@@ -0,0 +1,111 @@
+package ru.dkovalev.brokenpair
+
+import spock.lang.Specification
+
+import java.util.stream.Stream
+
+class SortedMergeReconcileServiceSpec extends Specification {
+
+    def "merges statuses of both sides in order"() {
+        given:
+        def results = [:]
+        def service = service(
+                ["Cancelled": stats(1), "Completed": stats(3), "Running": stats(2)],
+                ["Completed": stats(3), "Failed": stats(1), "Running": stats(1)])
+
+        when:
+        service.reconcile { status, result -> results[status] = result }
+
+        then:
+        results.keySet() as List == ["Cancelled", "Completed", "Failed", "Running"]
+        results == [
+                "Cancelled": ReconResult.of(stats(1), null),
+                "Completed": ReconResult.of(stats(3), stats(3)),
+                "Failed"   : ReconResult.of(null, stats(1)),
+                "Running"  : ReconResult.of(stats(2), stats(1))]
+    }
+
+    def "reconciles with an empty side"() {
+        given:
+        def results = [:]
+
+        when:
+        service([:], ["Completed": stats(3)]).reconcile { status, result -> results[status] = result }
+
+        then:
+        results == ["Completed": ReconResult.of(null, stats(3))]
+    }
+
+    def "streams many statuses and closes both sides"() {
+        given: "statuses generated lazily by ranges, every third one missing on the right"
+        def closed = 0
+        def left = { (0..<300_000).stream().map { entry(it) }.onClose { closed++ } } as SortedJobService
+        def right = { (0..<300_000).stream().filter { it % 3 != 0 }.map { entry(it) }.onClose { closed++ } } as SortedJobService
+        def matched = 0
+        def missing = 0
+
+        when:
+        new SortedMergeReconcileService<>(left, right, { l, r -> ReconResult.of(l, r) }).reconcile { status, result ->
+            result.right == null ? missing++ : matched++
+        }
+
+        then:
+        matched == 200_000
+        missing == 100_000
+        closed == 2
+    }
+
+    def "fails on #problem stats of a side"() {
+        given:
+        def service = new SortedMergeReconcileService<>(
+                { statuses.collect { new AbstractMap.SimpleEntry(it, stats(1)) }.stream() } as SortedJobService,
+                { [].stream() } as SortedJobService,
+                { l, r -> ReconResult.of(l, r) })
+
+        when:
+        service.reconcile { status, result -> }
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == "Stats of left side are not sorted by status: $message"
+
+        where:
+        problem      | statuses                   || message
+        "unsorted"   | ["Failed", "Completed"]    || "Completed after Failed"
+        "duplicated" | ["Completed", "Completed"] || "Completed after Completed"
+    }
+
+    def "collects sorted stats into a map"() {
+        given:
+        SortedJobService service = new SortedJobService() {
+            @Override
+            Stream<Map.Entry<String, JobStats>> streamStatsByStatus() {
+                [entry(1), entry(2)].stream()
+            }
+        }
+
+        expect:
+        service.getStatsByStatus() == [(status(1)): stats(1), (status(2)): stats(2)]
+    }
+
+    private static SortedMergeReconcileService<ReconResult<JobStats>> service(Map<String, JobStats> left,
+                                                                              Map<String, JobStats> right) {
+        new SortedMergeReconcileService<>(sorted(left), sorted(right), { l, r -> ReconResult.of(l, r) })
+    }
+
+    private static SortedJobService sorted(Map<String, JobStats> stats) {
+        { -> new TreeMap<>(stats).entrySet().stream() } as SortedJobService
+    }
+
+    private static Map.Entry<String, JobStats> entry(int i) {
+        new AbstractMap.SimpleEntry(status(i), stats(i))
+    }
+
+    private static String status(int i) {
+        String.format("status-%06d", i)
+    }
+
+    private static JobStats stats(int count) {
+        new JobStats(count: count, duration: 10)
+    }
+}
@@ -0,0 +1,181 @@
+package ru.dkovalev.tar.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dkovalev.tar.IndexedTarArchiver;
+import ru.dkovalev.tar.Java7TarArchiver;
+import ru.dkovalev.tar.NioTarArchiver;
+import ru.dkovalev.tar.TarArchiver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of {@link TarArchiver} operations on {@link Workload synthetic trees}.
+ * <pre>
+ * mvn -pl cherry-tar-bench -am package
+ * java -jar cherry-tar-bench/target/benchmarks.jar TarArchiverBenchmark -prof gc
+ * java -jar cherry-tar-bench/target/benchmarks.jar TarArchiverBenchmark.pack -p archiver=java7 -p workload=TINY_FILES
+ * </pre>
+ * Besides operations per second every benchmark reports "bytes" and "files" secondary results,
+ * the rates of file content and files processed. The gc profiler adds allocation rate per operation.
+ * Files are created in the working directory, run from the disk under test. Archives store names as given
+ * and reject absolute ones on unpack, so the tree is packed by its path relative to the working directory.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TarArchiverBenchmark {
+
+    @Param({"nio", "stream", "java7"})
+    private String archiver;
+
+    @Param
+    private Workload workload;
+
+    private TarArchiver tarArchiver;
+    private Path workDirectory;
+    private Path tree;
+    private Path archive;
+    private Path packed;
+    private long treeBytes;
+    private long treeFiles;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tarArchiver = createArchiver(archiver);
+        workDirectory = Files.createTempDirectory(Paths.get(""), "cherry-tar-bench");
+        tree = workDirectory.resolve("tree");
+        workload.create(tree);
+        try (Stream<Path> files = Files.walk(tree)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                treeFiles++;
+                treeBytes += file.toFile().length();
+            });
+        }
+        archive = workDirectory.resolve("pack.tar");
+        packed = workDirectory.resolve("unpack.tar");
+        tarArchiver.pack(packed.toString(), files());
+
+        // list prints every entry
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        delete(workDirectory);
+    }
+
+    @Benchmark
+    public void pack(Throughput throughput) throws IOException {
+        tarArchiver.pack(archive.toString(), files());
+        throughput.add(treeBytes, treeFiles);
+    }
+
+    @Benchmark
+    public void unpack(UnpackTarget target, Throughput throughput) throws IOException {
+        tarArchiver.unpack(packed.toString(), target.directory.toString());
+        throughput.add(treeBytes, treeFiles);
+    }
+
+    @Benchmark
+    public void list(Throughput throughput) throws IOException {
+        tarArchiver.list(packed.toString());
+        throughput.add(0, treeFiles);
+    }
+
+    private List<String> files() {
+        return Collections.singletonList(tree.toString());
+    }
+
+    private static TarArchiver createArchiver(String name) {
+        switch (name) {
+            case "nio":
+                return new NioTarArchiver();
+            case "stream":
+                return new IndexedTarArchiver();
+            case "java7":
+                return new Java7TarArchiver();
+            default:
+                throw new IllegalArgumentException("Unknown archiver: " + name);
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    /**
+     * Directory unpack extracts to. Extraction fails on existing files, the previous result is removed
+     * outside of the measurement, only for unpack as per-invocation setup skews the measurement of short operations.
+     */
+    @State(Scope.Benchmark)
+    public static class UnpackTarget {
+
+        private Path directory;
+
+        @Setup(Level.Invocation)
+        public void clean(TarArchiverBenchmark benchmark) throws IOException {
+            directory = benchmark.workDirectory.resolve("unpacked");
+            delete(directory);
+            // legacy archives need the parent directories of their entries
+            Files.createDirectories(directory.resolve(benchmark.tree.getParent()));
+        }
+    }
+
+    /**
+     * Content bytes and files processed, reported by JMH as rates next to the primary result.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        public long bytes;
+        public long files;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            files = 0;
+        }
+
+        void add(long bytes, long files) {
+            this.bytes += bytes;
+            this.files += files;
+        }
+    }
+}
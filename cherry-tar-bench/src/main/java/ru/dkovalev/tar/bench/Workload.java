@@ -0,0 +1,84 @@
+package ru.dkovalev.tar.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Synthetic file trees. Content is pseudo-random with a fixed seed, so every run archives the same bytes
+ * and compression has nothing to gain.
+ */
+public enum Workload {
+
+    /**
+     * 10 000 files of 128 bytes in 100 directories, per-file overhead dominates.
+     */
+    TINY_FILES {
+        @Override
+        void create(Path root, Random random) throws IOException {
+            for (int d = 0; d < 100; d++) {
+                Path dir = Files.createDirectories(root.resolve("dir" + d));
+                for (int f = 0; f < 100; f++) {
+                    write(dir.resolve("file" + f), 128, random);
+                }
+            }
+        }
+    },
+
+    /**
+     * 4 files of 64 MiB, copying dominates.
+     */
+    HUGE_FILES {
+        @Override
+        void create(Path root, Random random) throws IOException {
+            for (int f = 0; f < 4; f++) {
+                write(root.resolve("huge" + f), 64 << 20, random);
+            }
+        }
+    },
+
+    /**
+     * 200 nested directories with 5 files of 4 KiB each, long names and tree walking dominate.
+     */
+    DEEP_TREE {
+        @Override
+        void create(Path root, Random random) throws IOException {
+            Path dir = root;
+            for (int d = 0; d < 200; d++) {
+                dir = Files.createDirectories(dir.resolve("level" + d));
+                for (int f = 0; f < 5; f++) {
+                    write(dir.resolve("file" + f), 4 << 10, random);
+                }
+            }
+        }
+    },
+
+    /**
+     * 20 000 files of 1 KiB in a single directory, directory listing and catalog size dominate.
+     */
+    WIDE_DIRECTORY {
+        @Override
+        void create(Path root, Random random) throws IOException {
+            for (int f = 0; f < 20_000; f++) {
+                write(root.resolve("file" + f), 1 << 10, random);
+            }
+        }
+    };
+
+    abstract void create(Path root, Random random) throws IOException;
+
+    /**
+     * Creates the tree under a new directory.
+     */
+    public void create(Path root) throws IOException {
+        Files.createDirectories(root);
+        create(root, new Random(42));
+    }
+
+    private static void write(Path file, int size, Random random) throws IOException {
+        byte[] content = new byte[size];
+        random.nextBytes(content);
+        Files.write(file, content);
+    }
+}
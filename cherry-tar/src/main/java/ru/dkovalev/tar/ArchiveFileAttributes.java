@@ -0,0 +1,91 @@
+package ru.dkovalev.tar;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Basic attributes of an archive entry, only the modification time is archived
+ * so it stands for the other times as well.
+ */
+final class ArchiveFileAttributes implements BasicFileAttributes {
+
+    private final Catalog.Entry entry;
+
+    ArchiveFileAttributes(Catalog.Entry entry) {
+        this.entry = entry;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return FileTime.fromMillis(Math.max(0, entry.getLastModified()));
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return lastModifiedTime();
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return lastModifiedTime();
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return entry.isFile();
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return entry.isDirectory();
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return false;
+    }
+
+    @Override
+    public boolean isOther() {
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return entry.isFile() ? entry.getSize() : 0;
+    }
+
+    @Override
+    public Object fileKey() {
+        return null;
+    }
+
+    /**
+     * @param attributes comma separated names of the "basic" view, "*" for all
+     */
+    Map<String, Object> toMap(String attributes) {
+        Map<String, Object> all = new LinkedHashMap<>();
+        all.put("lastModifiedTime", lastModifiedTime());
+        all.put("lastAccessTime", lastAccessTime());
+        all.put("creationTime", creationTime());
+        all.put("size", size());
+        all.put("isRegularFile", isRegularFile());
+        all.put("isDirectory", isDirectory());
+        all.put("isSymbolicLink", isSymbolicLink());
+        all.put("isOther", isOther());
+        all.put("fileKey", fileKey());
+        if (attributes.equals("*")) {
+            return all;
+        }
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String name : attributes.split(",")) {
+            if (!all.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown basic attribute: " + name);
+            }
+            selected.put(name, all.get(name));
+        }
+        return selected;
+    }
+}
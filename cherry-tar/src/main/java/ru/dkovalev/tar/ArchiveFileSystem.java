@@ -0,0 +1,215 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of an {@link IndexedTarArchiver} archive. The index is loaded once as the directory
+ * tree, stored payloads are served as slices of the memory-mapped archive without copying,
+ * compressed ones are decompressed to the heap on open. Entry names become absolute paths,
+ * missing parent directories are implied.
+ */
+final class ArchiveFileSystem extends FileSystem {
+
+    private final ArchiveFileSystemProvider provider;
+    private final IndexedArchive archive;
+    private final Map<Integer, Compression> compressions;
+    private final ArchivePath root;
+    private final Map<ArchivePath, Catalog.Entry> entries = new HashMap<>();
+    private final Map<ArchivePath, Set<ArchivePath>> children = new HashMap<>();
+    private volatile boolean open = true;
+
+    ArchiveFileSystem(ArchiveFileSystemProvider provider, IndexedArchive archive, Map<Integer, Compression> compressions)
+            throws IOException {
+        this.provider = provider;
+        this.archive = archive;
+        this.compressions = compressions;
+        this.root = new ArchivePath(this, "/");
+        entries.put(root, new Catalog.Entry("/", true));
+        children.put(root, new LinkedHashSet<>());
+        CatalogReader indexReader = archive.openIndex();
+        for (Catalog.Entry entry = indexReader.read(); entry != null; entry = indexReader.read()) {
+            addEntry((ArchivePath) root.resolve(entry.getName()).normalize(), entry);
+        }
+    }
+
+    /**
+     * A later entry of the same name replaces an earlier one, e.g. after append, but a directory is kept over
+     * a file so its content stays reachable. A file standing in for the parent of an entry becomes a directory.
+     */
+    private void addEntry(ArchivePath path, Catalog.Entry entry) {
+        Catalog.Entry previous = entries.get(path);
+        if (previous != null && previous.isDirectory() && !entry.isDirectory()) {
+            return;
+        }
+        entries.put(path, entry);
+        if (entry.isDirectory()) {
+            children.putIfAbsent(path, new LinkedHashSet<>());
+        }
+        if (previous != null) {
+            // already a child of its parent
+            return;
+        }
+        ArchivePath parent = (ArchivePath) path.getParent();
+        Catalog.Entry parentEntry = entries.get(parent);
+        if (parentEntry == null || !parentEntry.isDirectory()) {
+            addEntry(parent, new Catalog.Entry(parent.toString(), true));
+        }
+        children.get(parent).add(path);
+    }
+
+    IndexedArchive getArchive() {
+        return archive;
+    }
+
+    ArchivePath getRoot() {
+        return root;
+    }
+
+    /**
+     * @return entry at the absolute normalized path or null
+     */
+    Catalog.Entry getEntry(Path path) {
+        ensureOpen();
+        return entries.get(path);
+    }
+
+    /**
+     * @return paths of directory entries, in archive order
+     */
+    Set<ArchivePath> getChildren(Path directory) {
+        ensureOpen();
+        Set<ArchivePath> directoryChildren = children.get(directory);
+        return directoryChildren == null ? null : Collections.unmodifiableSet(directoryChildren);
+    }
+
+    /**
+     * Content of a file entry, references of incremental archives are followed to base archives.
+     */
+    ByteBuffer getContent(Catalog.Entry entry) throws IOException {
+        ensureOpen();
+        IndexedArchive source = archive;
+        while (entry.isReference()) {
+            source = source.getBase();
+            entry = IndexedTarArchiver.baseEntry(source, entry);
+        }
+        if (entry.getSize() == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        ByteBuffer payload = source.map(entry.getOffset(), entry.getStoredSize());
+        if (!entry.isCompressed()) {
+            return payload;
+        }
+        Compression compression = compressions.get(entry.getCompression());
+        if (compression == null) {
+            throw new IOException("Unsupported compression of " + entry.getName() + ": " + entry.getCompression());
+        }
+        return CompressedPayload.decode(payload, entry, compression);
+    }
+
+    private void ensureOpen() {
+        if (!open) {
+            throw new ClosedFileSystemException();
+        }
+    }
+
+    @Override
+    public ArchiveFileSystemProvider provider() {
+        return provider;
+    }
+
+    /**
+     * Closes the archive, mapped buffers are released by the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            provider.remove(this);
+            archive.close();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public String getSeparator() {
+        return "/";
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return Collections.singletonList(root);
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return Collections.singleton("basic");
+    }
+
+    @Override
+    public Path getPath(String first, String... more) {
+        StringBuilder sb = new StringBuilder(first);
+        for (String segment : more) {
+            if (!segment.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append('/');
+                }
+                sb.append(segment);
+            }
+        }
+        return new ArchivePath(this, sb.toString());
+    }
+
+    /**
+     * Same syntax as the default file system, as for {@link Catalog#select(List)}.
+     */
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher(syntaxAndPattern);
+        return path -> matcher.matches(Paths.get(path.toString()));
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException("Archive file system is read-only");
+    }
+
+    @Override
+    public String toString() {
+        return archive.getPath().toString();
+    }
+}
@@ -0,0 +1,319 @@
+package ru.dkovalev.tar;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mounts {@link IndexedTarArchiver} archives as read-only file systems, so single resources are read
+ * with {@link java.nio.file.Files} without extracting the archive:
+ * <pre>
+ * try (FileSystem fs = FileSystems.newFileSystem(Paths.get("backup.tar"), null)) {
+ *     Files.walk(fs.getPath("/")).forEach(System.out::println);
+ * }
+ * </pre>
+ * URIs have the form {@code cherry:file:///path/to/backup.tar!/entry/name}. Custom compressions
+ * are passed in the environment as a collection of {@link Compression} under {@value #COMPRESSIONS}.
+ */
+public class ArchiveFileSystemProvider extends FileSystemProvider {
+
+    public static final String SCHEME = "cherry";
+    public static final String COMPRESSIONS = "compressions";
+
+    private static final String SEPARATOR = "!";
+
+    private final Map<Path, ArchiveFileSystem> fileSystems = new HashMap<>();
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public FileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException {
+        Path archivePath = archivePath(uri);
+        synchronized (fileSystems) {
+            if (fileSystems.containsKey(archivePath)) {
+                throw new FileSystemAlreadyExistsException(archivePath.toString());
+            }
+            ArchiveFileSystem fileSystem = open(archivePath, env);
+            fileSystems.put(archivePath, fileSystem);
+            return fileSystem;
+        }
+    }
+
+    /**
+     * File systems opened from a path are not registered for {@link #getFileSystem(URI)}.
+     * Files of other formats are left to other providers.
+     */
+    @Override
+    public FileSystem newFileSystem(Path path, Map<String, ?> env) throws IOException {
+        try (DataInputStream dis = new DataInputStream(Files.newInputStream(path))) {
+            if (dis.readInt() != IndexedArchive.MAGIC) {
+                throw new UnsupportedOperationException("Not an indexed archive: " + path);
+            }
+        } catch (EOFException e) {
+            throw new UnsupportedOperationException("Not an indexed archive: " + path);
+        }
+        return open(path, env);
+    }
+
+    private ArchiveFileSystem open(Path archivePath, Map<String, ?> env) throws IOException {
+        Map<Integer, Compression> compressions = new HashMap<>();
+        compressions.put(DeflateCompression.ID, new DeflateCompression());
+        Object custom = env == null ? null : env.get(COMPRESSIONS);
+        if (custom != null) {
+            for (Object compression : (Collection<?>) custom) {
+                compressions.put(((Compression) compression).getId(), (Compression) compression);
+            }
+        }
+        IndexedArchive archive = IndexedArchive.open(archivePath);
+        try {
+            return new ArchiveFileSystem(this, archive, compressions);
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public FileSystem getFileSystem(URI uri) {
+        synchronized (fileSystems) {
+            ArchiveFileSystem fileSystem = fileSystems.get(archivePath(uri));
+            if (fileSystem == null) {
+                throw new FileSystemNotFoundException(uri.toString());
+            }
+            return fileSystem;
+        }
+    }
+
+    @Override
+    public Path getPath(URI uri) {
+        String spec = uri.getSchemeSpecificPart();
+        int separator = spec.indexOf(SEPARATOR);
+        String entry = separator == -1 ? "/" : spec.substring(separator + SEPARATOR.length());
+        return getFileSystem(uri).getPath(entry.isEmpty() ? "/" : entry);
+    }
+
+    void remove(ArchiveFileSystem fileSystem) {
+        synchronized (fileSystems) {
+            fileSystems.values().remove(fileSystem);
+        }
+    }
+
+    URI toUri(ArchiveFileSystem fileSystem, String entry) {
+        try {
+            return new URI(SCHEME, fileSystem.getArchive().getPath().toUri() + SEPARATOR + entry, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private Path archivePath(URI uri) {
+        if (!SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("Not a " + SCHEME + " URI: " + uri);
+        }
+        String spec = uri.getSchemeSpecificPart();
+        int separator = spec.indexOf(SEPARATOR);
+        try {
+            return Paths.get(new URI(separator == -1 ? spec : spec.substring(0, separator))).toAbsolutePath().normalize();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid archive URI: " + uri, e);
+        }
+    }
+
+    private static ArchivePath toArchivePath(Path path) {
+        if (!(path instanceof ArchivePath)) {
+            throw new ProviderMismatchException();
+        }
+        return (ArchivePath) path;
+    }
+
+    private static Catalog.Entry entry(Path path) throws NoSuchFileException {
+        ArchivePath archivePath = toArchivePath(path);
+        Catalog.Entry entry = archivePath.getFileSystem().getEntry(archivePath.toAbsolutePath().normalize());
+        if (entry == null) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return entry;
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+            throws IOException {
+        for (OpenOption option : options) {
+            if (option != StandardOpenOption.READ && option != LinkOption.NOFOLLOW_LINKS) {
+                throw new ReadOnlyFileSystemException();
+            }
+        }
+        Catalog.Entry entry = entry(path);
+        if (entry.isDirectory()) {
+            throw new IOException("Is a directory: " + path);
+        }
+        return new ByteBufferChannel(toArchivePath(path).getFileSystem().getContent(entry));
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException {
+        ArchivePath directory = toArchivePath(dir);
+        Set<ArchivePath> children = directory.getFileSystem().getChildren(directory.toAbsolutePath().normalize());
+        if (children == null) {
+            entry(dir);
+            throw new NotDirectoryException(dir.toString());
+        }
+        List<Path> accepted = new ArrayList<>();
+        for (ArchivePath child : children) {
+            // resolved against the given directory, as the default provider does
+            Path path = directory.resolve(child.getFileName());
+            if (filter.accept(path)) {
+                accepted.add(path);
+            }
+        }
+        return new DirectoryStream<Path>() {
+            @Override
+            public Iterator<Path> iterator() {
+                return accepted.iterator();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public void delete(Path path) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public void move(Path source, Path target, CopyOption... options) {
+        throw new ReadOnlyFileSystemException();
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) throws IOException {
+        if (path.equals(path2)) {
+            return true;
+        }
+        if (!(path2 instanceof ArchivePath) || path.getFileSystem() != path2.getFileSystem()) {
+            return false;
+        }
+        return entry(path) == entry(path2);
+    }
+
+    @Override
+    public boolean isHidden(Path path) {
+        return false;
+    }
+
+    @Override
+    public FileStore getFileStore(Path path) {
+        throw new UnsupportedOperationException("Archive file system has no file stores");
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        entry(path);
+        for (AccessMode mode : modes) {
+            if (mode == AccessMode.WRITE) {
+                throw new ReadOnlyFileSystemException();
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+        if (type != BasicFileAttributeView.class) {
+            return null;
+        }
+        return (V) new BasicFileAttributeView() {
+            @Override
+            public String name() {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException {
+                return new ArchiveFileAttributes(entry(path));
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime) {
+                throw new ReadOnlyFileSystemException();
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+            throws IOException {
+        if (type != BasicFileAttributes.class) {
+            throw new UnsupportedOperationException("Only basic attributes are supported: " + type.getName());
+        }
+        return (A) new ArchiveFileAttributes(entry(path));
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
+        String names = attributes;
+        int colon = attributes.indexOf(':');
+        if (colon != -1) {
+            if (!attributes.substring(0, colon).equals("basic")) {
+                throw new UnsupportedOperationException("Only basic attributes are supported: " + attributes);
+            }
+            names = attributes.substring(colon + 1);
+        }
+        return new ArchiveFileAttributes(entry(path)).toMap(names);
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+        throw new ReadOnlyFileSystemException();
+    }
+}
@@ -0,0 +1,25 @@
+package ru.dkovalev.tar;
+
+/**
+ * Progress of pack, unpack and verify operations. Entries are reported from extract threads concurrently,
+ * so implementations have to be thread-safe, see {@link ArchiveMetrics}.
+ */
+public interface ArchiveListener {
+
+    ArchiveListener NONE = new ArchiveListener() {
+    };
+
+    /**
+     * Time spent listing files on pack or reading the catalog on unpack and verify, reported once per operation.
+     * Single pass packing walks the tree while copying, the walk time not spent on entries is reported then.
+     */
+    default void cataloged(long nanos) {
+    }
+
+    /**
+     * @param bytes file content bytes archived, extracted or checked, 0 for directories and for references on pack
+     * @param nanos time spent on the entry: copying, compressing, hashing or checking its payload
+     */
+    default void entryProcessed(Catalog.Entry entry, long bytes, long nanos) {
+    }
+}
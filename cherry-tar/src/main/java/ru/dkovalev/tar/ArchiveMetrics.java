@@ -0,0 +1,127 @@
+package ru.dkovalev.tar;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counters of archive operations: entries and bytes processed, throughput,
+ * catalog versus payload time and a histogram of per-entry latencies in power of two buckets.
+ */
+public class ArchiveMetrics implements ArchiveListener {
+
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder catalogNanos = new LongAdder();
+    private final LongAdder entryNanos = new LongAdder();
+    /** Bucket i counts latencies in [2^(i-1), 2^i) nanos, bucket 0 counts zero latencies. */
+    private final AtomicLongArray latencies = new AtomicLongArray(Long.SIZE);
+    private final long startNanos = System.nanoTime();
+
+    private long slowestNanos = -1;
+    private String slowestEntry;
+
+    @Override
+    public void cataloged(long nanos) {
+        catalogNanos.add(nanos);
+    }
+
+    @Override
+    public void entryProcessed(Catalog.Entry entry, long bytes, long nanos) {
+        entries.increment();
+        this.bytes.add(bytes);
+        entryNanos.add(nanos);
+        latencies.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+        synchronized (this) {
+            if (nanos > slowestNanos) {
+                slowestNanos = nanos;
+                slowestEntry = entry.getName();
+            }
+        }
+    }
+
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return bytes per second since creation
+     */
+    public double getThroughput() {
+        return getBytes() * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, getElapsedNanos());
+    }
+
+    public long getCatalogNanos() {
+        return catalogNanos.sum();
+    }
+
+    /**
+     * @return time spent on entries summed over threads, exceeds the elapsed time with concurrent extraction
+     */
+    public long getEntryNanos() {
+        return entryNanos.sum();
+    }
+
+    /**
+     * @return counts of latencies by bucket, bucket i holds latencies below 2^i nanos and at least half of it
+     */
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[latencies.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencies.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     * @return upper bound of the bucket holding the quantile of entry latencies in nanos, 0 without entries
+     */
+    public long getLatencyQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be in 0..1: " + quantile);
+        }
+        long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank && histogram[i] > 0) {
+                return i == 0 ? 0 : i == Long.SIZE - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return 0;
+    }
+
+    public synchronized long getSlowestNanos() {
+        return Math.max(0, slowestNanos);
+    }
+
+    /**
+     * @return name of the entry that took longest, null without entries
+     */
+    public synchronized String getSlowestEntry() {
+        return slowestEntry;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d entries, %.1f MB, %.1f MB/s, catalog %d ms, entries %d ms, latency p50 < %d us, p99 < %d us, max %d us (%s)",
+                getEntries(), getBytes() / 1e6, getThroughput() / 1e6,
+                TimeUnit.NANOSECONDS.toMillis(getCatalogNanos()), TimeUnit.NANOSECONDS.toMillis(getEntryNanos()),
+                TimeUnit.NANOSECONDS.toMicros(getLatencyQuantile(0.5)), TimeUnit.NANOSECONDS.toMicros(getLatencyQuantile(0.99)),
+                TimeUnit.NANOSECONDS.toMicros(getSlowestNanos()), getSlowestEntry());
+    }
+}
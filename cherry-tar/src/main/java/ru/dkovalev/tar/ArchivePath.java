@@ -0,0 +1,321 @@
+package ru.dkovalev.tar;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Unix style path inside an {@link ArchiveFileSystem}, the root is "/" and relative paths
+ * are resolved against it.
+ */
+final class ArchivePath implements Path {
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private final ArchiveFileSystem fileSystem;
+    private final String path;
+    private String[] names;
+
+    ArchivePath(ArchiveFileSystem fileSystem, String path) {
+        this.fileSystem = fileSystem;
+        this.path = clean(path);
+    }
+
+    /**
+     * Drops repeated and trailing separators.
+     */
+    private static String clean(String path) {
+        StringBuilder sb = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\u0000') {
+                throw new IllegalArgumentException("Nul character in path: " + path);
+            }
+            if (c != '/' || sb.length() == 0 || sb.charAt(sb.length() - 1) != '/') {
+                sb.append(c);
+            }
+        }
+        if (sb.length() > 1 && sb.charAt(sb.length() - 1) == '/') {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+
+    private String[] names() {
+        if (names == null) {
+            if (path.isEmpty()) {
+                names = new String[]{""};
+            } else if (path.equals("/")) {
+                names = NO_NAMES;
+            } else {
+                names = (isAbsolute() ? path.substring(1) : path).split("/");
+            }
+        }
+        return names;
+    }
+
+    private ArchivePath of(String[] names, int from, int to, boolean absolute) {
+        String joined = String.join("/", Arrays.asList(names).subList(from, to));
+        return new ArchivePath(fileSystem, absolute ? "/" + joined : joined);
+    }
+
+    private ArchivePath check(Path other) {
+        if (!(other instanceof ArchivePath)) {
+            throw new ProviderMismatchException();
+        }
+        return (ArchivePath) other;
+    }
+
+    @Override
+    public ArchiveFileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return path.startsWith("/");
+    }
+
+    @Override
+    public Path getRoot() {
+        return isAbsolute() ? fileSystem.getRoot() : null;
+    }
+
+    @Override
+    public Path getFileName() {
+        String[] names = names();
+        if (names.length == 0) {
+            return null;
+        }
+        return names.length == 1 && !isAbsolute() ? this : new ArchivePath(fileSystem, names[names.length - 1]);
+    }
+
+    @Override
+    public Path getParent() {
+        String[] names = names();
+        if (names.length == 0 || (names.length == 1 && !isAbsolute())) {
+            return null;
+        }
+        return of(names, 0, names.length - 1, isAbsolute());
+    }
+
+    @Override
+    public int getNameCount() {
+        return names().length;
+    }
+
+    @Override
+    public Path getName(int index) {
+        return subpath(index, index + 1);
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex) {
+        String[] names = names();
+        if (beginIndex < 0 || endIndex > names.length || beginIndex >= endIndex) {
+            throw new IllegalArgumentException(String.format("Invalid subpath %d..%d of %s", beginIndex, endIndex, path));
+        }
+        return of(names, beginIndex, endIndex, false);
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        if (!(other instanceof ArchivePath) || other.getFileSystem() != fileSystem) {
+            return false;
+        }
+        ArchivePath that = (ArchivePath) other;
+        if (that.isAbsolute() != isAbsolute() || that.names().length > names().length) {
+            return false;
+        }
+        for (int i = 0; i < that.names().length; i++) {
+            if (!that.names()[i].equals(names()[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startsWith(String other) {
+        return startsWith(fileSystem.getPath(other));
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof ArchivePath) || other.getFileSystem() != fileSystem) {
+            return false;
+        }
+        ArchivePath that = (ArchivePath) other;
+        if (that.isAbsolute()) {
+            return equals(that);
+        }
+        int offset = names().length - that.names().length;
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < that.names().length; i++) {
+            if (!that.names()[i].equals(names()[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endsWith(String other) {
+        return endsWith(fileSystem.getPath(other));
+    }
+
+    @Override
+    public Path normalize() {
+        Deque<String> normalized = new ArrayDeque<>();
+        for (String name : names()) {
+            if (name.equals(".") || name.isEmpty()) {
+                continue;
+            }
+            if (name.equals("..")) {
+                if (!normalized.isEmpty() && !normalized.peekLast().equals("..")) {
+                    normalized.removeLast();
+                    continue;
+                }
+                if (isAbsolute()) {
+                    // nothing above the root
+                    continue;
+                }
+            }
+            normalized.addLast(name);
+        }
+        return of(normalized.toArray(NO_NAMES), 0, normalized.size(), isAbsolute());
+    }
+
+    @Override
+    public Path resolve(Path other) {
+        ArchivePath that = check(other);
+        if (that.isAbsolute() || path.isEmpty()) {
+            return that;
+        }
+        if (that.path.isEmpty()) {
+            return this;
+        }
+        return new ArchivePath(fileSystem, path + "/" + that.path);
+    }
+
+    @Override
+    public Path resolve(String other) {
+        return resolve(fileSystem.getPath(other));
+    }
+
+    @Override
+    public Path resolveSibling(Path other) {
+        Path parent = getParent();
+        return parent == null ? check(other) : parent.resolve(other);
+    }
+
+    @Override
+    public Path resolveSibling(String other) {
+        return resolveSibling(fileSystem.getPath(other));
+    }
+
+    @Override
+    public Path relativize(Path other) {
+        ArchivePath that = check(other);
+        if (that.isAbsolute() != isAbsolute()) {
+            throw new IllegalArgumentException("Can not relativize " + that + " against " + this);
+        }
+        String[] names = path.isEmpty() ? NO_NAMES : names();
+        String[] otherNames = that.path.isEmpty() ? NO_NAMES : that.names();
+        int common = 0;
+        while (common < names.length && common < otherNames.length && names[common].equals(otherNames[common])) {
+            common++;
+        }
+        List<String> relative = new ArrayList<>();
+        for (int i = common; i < names.length; i++) {
+            relative.add("..");
+        }
+        relative.addAll(Arrays.asList(otherNames).subList(common, otherNames.length));
+        return new ArchivePath(fileSystem, String.join("/", relative));
+    }
+
+    @Override
+    public URI toUri() {
+        return fileSystem.provider().toUri(fileSystem, toAbsolutePath().toString());
+    }
+
+    @Override
+    public Path toAbsolutePath() {
+        return isAbsolute() ? this : fileSystem.getRoot().resolve(this);
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws IOException {
+        Path realPath = toAbsolutePath().normalize();
+        if (fileSystem.getEntry(realPath) == null) {
+            throw new NoSuchFileException(toString());
+        }
+        return realPath;
+    }
+
+    @Override
+    public File toFile() {
+        throw new UnsupportedOperationException("Not a default file system path: " + this);
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("Archive file system is read-only");
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>... events) {
+        return register(watcher, events, new WatchEvent.Modifier[0]);
+    }
+
+    @Override
+    public Iterator<Path> iterator() {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < getNameCount(); i++) {
+            paths.add(getName(i));
+        }
+        return paths.iterator();
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return path.compareTo(check(other).path);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ArchivePath)) {
+            return false;
+        }
+        ArchivePath that = (ArchivePath) o;
+        return fileSystem == that.fileSystem && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -1,6 +1,10 @@
 package ru.dkovalev.tar;
 
 import java.io.Serializable;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -18,10 +22,18 @@ public class Catalog implements Serializable {
         entries.add(new Entry(name, false));
     }
 
+    public void addFile(String name, long offset, long size) {
+        entries.add(new Entry(name, false, offset, size));
+    }
+
     public void addDirectory(String name) {
         entries.add(new Entry(name, true));
     }
 
+    public void addEntry(Entry entry) {
+        entries.add(entry);
+    }
+
     public List<Entry> getEntries() {
         return entries;
     }
@@ -33,6 +45,30 @@ public class Catalog implements Serializable {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns entries matching any of the given glob patterns, e.g. "conf/app.properties" or "logs/*.log".
+     * An entry also matches when one of its parent directories does, so a directory pattern selects its content.
+     */
+    public List<Entry> select(List<String> patterns) {
+        List<PathMatcher> matchers = patterns.stream()
+                .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern))
+                .collect(Collectors.toList());
+        return entries.stream()
+                .filter(entry -> matches(matchers, Paths.get(entry.getName())))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path path) {
+        for (Path p = path; p != null; p = p.getParent()) {
+            for (PathMatcher matcher : matchers) {
+                if (matcher.matches(p)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @Override
     public String toString() {
         return entries.toString();
@@ -43,10 +79,64 @@ public class Catalog implements Serializable {
 
         private final String name;
         private final boolean isDirectory;
+        private final long offset;
+        private final long size;
+        private final long storedSize;
+        private final int compression;
+        private final long lastModified;
+        private final boolean isReference;
+        private final byte[] digest;
+        private final long checksum;
 
         public Entry(String name, boolean isDirectory) {
+            this(name, isDirectory, -1, -1);
+        }
+
+        public Entry(String name, boolean isDirectory, long offset, long size) {
+            this(name, isDirectory, offset, size, size, Compression.NONE, -1, false, null, -1);
+        }
+
+        private Entry(String name, boolean isDirectory, long offset, long size, long storedSize, int compression,
+                      long lastModified, boolean isReference, byte[] digest, long checksum) {
             this.name = name;
             this.isDirectory = isDirectory;
+            this.offset = offset;
+            this.size = size;
+            this.storedSize = storedSize;
+            this.compression = compression;
+            this.lastModified = lastModified;
+            this.isReference = isReference;
+            this.digest = digest;
+            this.checksum = checksum;
+        }
+
+        /**
+         * File entry not stored in an archive yet.
+         */
+        public static Entry file(String name, long size, long lastModified) {
+            return new Entry(name, false, -1, size, size, Compression.NONE, lastModified, false, null, -1);
+        }
+
+        /**
+         * Copy of this entry with payload location in the archive, checksum of the previous payload is dropped.
+         */
+        public Entry withPayload(long offset, long storedSize, int compression) {
+            return new Entry(name, isDirectory, offset, size, storedSize, compression, lastModified, false, digest, -1);
+        }
+
+        /**
+         * Copy of this entry with content stored in the base archive under the same name.
+         */
+        public Entry asReference() {
+            return new Entry(name, isDirectory, -1, size, 0, Compression.NONE, lastModified, true, digest, -1);
+        }
+
+        public Entry withDigest(byte[] digest) {
+            return new Entry(name, isDirectory, offset, size, storedSize, compression, lastModified, isReference, digest, checksum);
+        }
+
+        public Entry withChecksum(long checksum) {
+            return new Entry(name, isDirectory, offset, size, storedSize, compression, lastModified, isReference, digest, checksum);
         }
 
         public String getName() {
@@ -60,5 +150,69 @@ public class Catalog implements Serializable {
         public boolean isFile() {
             return !isDirectory;
         }
+
+        /**
+         * Payload position in the archive, -1 if unknown.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Payload size in bytes, -1 if unknown.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Payload size in the archive, differs from {@link #getSize()} for compressed entries.
+         */
+        public long getStoredSize() {
+            return storedSize;
+        }
+
+        /**
+         * {@link Compression#getId() Compression id}, {@link Compression#NONE} for payloads stored as is.
+         */
+        public int getCompression() {
+            return compression;
+        }
+
+        public boolean isCompressed() {
+            return compression != Compression.NONE;
+        }
+
+        /**
+         * File modification time in millis, -1 if unknown.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Unchanged file of an incremental archive, payload is in the base archive.
+         */
+        public boolean isReference() {
+            return isReference;
+        }
+
+        /**
+         * SHA-256 of file content, null if not computed.
+         */
+        public byte[] getDigest() {
+            return digest;
+        }
+
+        /**
+         * CRC32C of the payload as stored in the archive, -1 if not computed.
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public boolean hasChecksum() {
+            return checksum != -1;
+        }
     }
 }
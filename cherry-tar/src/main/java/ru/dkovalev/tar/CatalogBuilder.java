@@ -1,31 +1,70 @@
 package ru.dkovalev.tar;
 
+import java.io.IOException;
 import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
 
 public class CatalogBuilder extends SimpleFileVisitor<Path> {
 
     private Catalog catalog;
+    private final EntryConsumer consumer;
 
     public CatalogBuilder(Catalog catalog) {
         this.catalog = catalog;
+        this.consumer = catalog::addEntry;
+    }
+
+    /**
+     * Emits entries to the consumer as they are visited, files carry their size and modification time.
+     */
+    public CatalogBuilder(EntryConsumer consumer) {
+        this.consumer = consumer;
     }
 
     public Catalog getCatalog() {
         return catalog;
     }
 
+    public static Catalog createCatalog(List<String> fileNames) throws IOException {
+        Catalog catalog = new Catalog();
+        walk(fileNames, new CatalogBuilder(catalog));
+        return catalog;
+    }
+
+    /**
+     * Visits given files and directory trees in a single pass.
+     */
+    public static void walk(List<String> fileNames, EntryConsumer consumer) throws IOException {
+        walk(fileNames, new CatalogBuilder(consumer));
+    }
+
+    private static void walk(List<String> fileNames, CatalogBuilder catalogBuilder) throws IOException {
+        for (String fileName : fileNames) {
+            Files.walkFileTree(Paths.get(fileName), catalogBuilder);
+        }
+    }
+
     @Override
-    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-        catalog.addFile(file.toString());
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        // links are archived with the content they point to
+        long size = attrs.isRegularFile() ? attrs.size() : Files.size(file);
+        consumer.accept(Catalog.Entry.file(file.toString(), size, attrs.lastModifiedTime().toMillis()));
         return FileVisitResult.CONTINUE;
     }
 
     @Override
-    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-        catalog.addDirectory(dir.toString());
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        consumer.accept(new Catalog.Entry(dir.toString(), true));
         return FileVisitResult.CONTINUE;
     }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(Catalog.Entry entry) throws IOException;
+    }
 }
@@ -0,0 +1,134 @@
+package ru.dkovalev.tar;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming decoder for catalogs written by {@link CatalogWriter}, entries are decoded one at a time
+ * so a catalog can be listed without materializing it.
+ */
+public class CatalogReader {
+
+    private final InputStream is;
+    private final StringBuilder name = new StringBuilder();
+    private long expectedOffset;
+    private boolean finished;
+
+    public CatalogReader(InputStream is) {
+        this.is = is;
+    }
+
+    /**
+     * @return next entry or null at the end of catalog
+     */
+    public Catalog.Entry read() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int flags = readByte();
+        if (flags == CatalogWriter.END) {
+            finished = true;
+            return null;
+        }
+        if ((flags & CatalogWriter.ENTRY) == 0) {
+            throw new IOException("Corrupted catalog entry flags: " + flags);
+        }
+        int shared = (int) readVarint();
+        int length = (int) readVarint();
+        if (shared > name.length()) {
+            throw new IOException(String.format("Corrupted catalog entry: shared=%d, previous=%s", shared, name));
+        }
+        name.setLength(shared);
+        name.append(new String(readBytes(length), StandardCharsets.UTF_8));
+
+        if ((flags & CatalogWriter.DIRECTORY) != 0) {
+            return new Catalog.Entry(name.toString(), true);
+        }
+        long size = readVarint();
+        long lastModified = unzigzag(readVarint());
+        Catalog.Entry entry = Catalog.Entry.file(name.toString(), size, lastModified);
+        if ((flags & CatalogWriter.REFERENCE) != 0) {
+            entry = entry.asReference();
+        } else {
+            long offsetDelta = unzigzag(readVarint());
+            int compression = Compression.NONE;
+            long storedSize = size;
+            if ((flags & CatalogWriter.COMPRESSED) != 0) {
+                compression = (int) readVarint();
+                storedSize = readVarint();
+            }
+            entry = entry.withPayload(-1, storedSize, compression);
+            long offset = expectedOffset + EntryHeader.storedLength(entry) + offsetDelta;
+            expectedOffset = Math.max(expectedOffset, offset + storedSize);
+            entry = entry.withPayload(offset, storedSize, compression);
+        }
+        if ((flags & CatalogWriter.DIGEST) != 0) {
+            entry = entry.withDigest(readBytes((int) readVarint()));
+        }
+        if ((flags & CatalogWriter.CHECKSUM) != 0) {
+            byte[] checksum = readBytes(Integer.BYTES);
+            entry = entry.withChecksum(((checksum[0] & 0xFFL) << 24) | ((checksum[1] & 0xFF) << 16)
+                    | ((checksum[2] & 0xFF) << 8) | (checksum[3] & 0xFF));
+        }
+        return entry;
+    }
+
+    public Catalog readCatalog() throws IOException {
+        Catalog catalog = new Catalog();
+        for (Catalog.Entry entry = read(); entry != null; entry = read()) {
+            catalog.addEntry(entry);
+        }
+        return catalog;
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint() throws IOException {
+        return readVarint(is);
+    }
+
+    private int readByte() throws IOException {
+        return readByte(is);
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        return readBytes(is, length);
+    }
+
+    static long readVarint(InputStream is) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = readByte(is);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static int readByte(InputStream is) throws IOException {
+        int b = is.read();
+        if (b == -1) {
+            throw new EOFException("Unexpected end of catalog");
+        }
+        return b;
+    }
+
+    static byte[] readBytes(InputStream is, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int n = 0;
+        while (n < length) {
+            int count = is.read(bytes, n, length - n);
+            if (count == -1) {
+                throw new EOFException("Unexpected end of catalog");
+            }
+            n += count;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.dkovalev.tar;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of catalog entries, read back by {@link CatalogReader}.
+ * <p/>
+ * Entry layout, numbers are unsigned LEB128 varints:
+ * <pre>
+ * [byte flags]                 # 0 marks the end of catalog
+ * [varint shared]              # chars shared with the previous entry name
+ * [varint length][utf-8 bytes] # rest of the name
+ * [varint size]                # files only
+ * [varint last modified]       # files only, zigzag encoded millis
+ * [varint offset delta]        # stored files only, zigzag encoded distance from the end of previous payload
+ *                              # and the {@link EntryHeader} of this entry
+ * [varint compression]         # compressed files only, {@link Compression#getId()}
+ * [varint stored size]         # compressed files only, payload size in the archive
+ * [varint length][bytes]       # files with digest only
+ * [int checksum]               # files with checksum only, CRC32C of the stored payload
+ * </pre>
+ * Siblings share their directory prefix and back-to-back payloads, each behind its entry header, encode offsets
+ * as a single zero byte, duplicates of a stored payload point back to it.
+ */
+public class CatalogWriter implements Flushable {
+
+    static final int END = 0;
+    static final int ENTRY = 1;
+    static final int DIRECTORY = 1 << 1;
+    static final int COMPRESSED = 1 << 2;
+    static final int REFERENCE = 1 << 3;
+    static final int DIGEST = 1 << 4;
+    // 1 << 5 marks duplicates in EntryHeader
+    static final int CHECKSUM = 1 << 6;
+
+    private final OutputStream os;
+    private String previousName = "";
+    private long expectedOffset;
+
+    public CatalogWriter(OutputStream os) {
+        this.os = os;
+    }
+
+    public void write(Catalog.Entry entry) throws IOException {
+        String name = entry.getName();
+        int shared = sharedPrefix(previousName, name);
+        byte[] suffix = name.substring(shared).getBytes(StandardCharsets.UTF_8);
+
+        int flags = ENTRY;
+        if (entry.isDirectory()) {
+            flags |= DIRECTORY;
+        }
+        if (entry.isCompressed()) {
+            flags |= COMPRESSED;
+        }
+        if (entry.isReference()) {
+            flags |= REFERENCE;
+        }
+        if (entry.getDigest() != null) {
+            flags |= DIGEST;
+        }
+        if (entry.hasChecksum()) {
+            flags |= CHECKSUM;
+        }
+        os.write(flags);
+        writeVarint(shared);
+        writeVarint(suffix.length);
+        os.write(suffix);
+        if (entry.isFile()) {
+            writeVarint(entry.getSize());
+            writeVarint(zigzag(entry.getLastModified()));
+            if (!entry.isReference()) {
+                writeVarint(zigzag(entry.getOffset() - expectedOffset - EntryHeader.storedLength(entry)));
+                if (entry.isCompressed()) {
+                    writeVarint(entry.getCompression());
+                    writeVarint(entry.getStoredSize());
+                }
+                // payloads shared by duplicates are behind
+                expectedOffset = Math.max(expectedOffset, entry.getOffset() + entry.getStoredSize());
+            }
+            if (entry.getDigest() != null) {
+                writeVarint(entry.getDigest().length);
+                os.write(entry.getDigest());
+            }
+            if (entry.hasChecksum()) {
+                int checksum = (int) entry.getChecksum();
+                os.write(checksum >>> 24);
+                os.write(checksum >>> 16);
+                os.write(checksum >>> 8);
+                os.write(checksum);
+            }
+        }
+        previousName = name;
+    }
+
+    public void write(Catalog catalog) throws IOException {
+        for (Catalog.Entry entry : catalog.getEntries()) {
+            write(entry);
+        }
+    }
+
+    /**
+     * Writes the end of catalog mark and flushes the underlying stream.
+     */
+    public void finish() throws IOException {
+        os.write(END);
+        flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // never split a surrogate pair, the suffix is encoded on its own
+        if (i > 0 && Character.isHighSurrogate(b.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        writeVarint(os, value);
+    }
+
+    static void writeVarint(OutputStream os, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            os.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        os.write((int) value);
+    }
+}
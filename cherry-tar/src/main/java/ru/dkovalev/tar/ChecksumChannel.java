@@ -0,0 +1,84 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes CRC32C of bytes as they are written through, so payloads are checksummed in the same pass.
+ * CRC32C is hardware accelerated on common platforms, direct and mapped buffers are checksummed in place.
+ */
+final class ChecksumChannel implements WritableByteChannel {
+
+    /** Size of the copy buffer, larger files are worth mapping instead. */
+    static final int BUFFER_SIZE = 1 << 18;
+
+    private final WritableByteChannel channel;
+    private final CRC32C checksum = new CRC32C();
+    private ByteBuffer buffer;
+
+    ChecksumChannel(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int position = src.position();
+        int n = channel.write(src);
+        if (n > 0) {
+            ByteBuffer written = src.duplicate();
+            written.limit(position + n).position(position);
+            checksum.update(written);
+        }
+        return n;
+    }
+
+    /**
+     * Copies the file through a direct buffer reused for all payloads of the archive, so the checksum covers
+     * exactly the bytes written and no buffer is allocated per file.
+     *
+     * @return bytes copied, less than the size if the file was truncated meanwhile
+     */
+    long transferFrom(FileChannel source, long size) throws IOException {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        long bytesCopied = 0;
+        while (bytesCopied < size) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), size - bytesCopied));
+            int n = source.read(buffer, bytesCopied);
+            if (n == -1) {
+                break;
+            }
+            buffer.flip();
+            IndexedTarArchiver.writeFully(this, buffer);
+            bytesCopied += n;
+        }
+        return bytesCopied;
+    }
+
+    /**
+     * @return CRC32C of bytes written since the last reset
+     */
+    long getChecksum() {
+        return checksum.getValue();
+    }
+
+    void reset() {
+        checksum.reset();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * The underlying channel is owned by the caller.
+     */
+    @Override
+    public void close() {
+    }
+}
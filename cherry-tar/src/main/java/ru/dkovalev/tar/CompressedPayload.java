@@ -0,0 +1,216 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Compressed payload is a sequence of independently compressed blocks:
+ * <pre>
+ * [int length][bytes]*         # high bit of length marks a block stored as is
+ * </pre>
+ * Every block but the last holds {@link #BLOCK_SIZE} bytes of file content, so blocks are compressed
+ * in parallel and written in order, and decompressed in parallel straight to their place in the file.
+ * The number of blocks follows from the file size, so a payload is also read from a stream without its stored size.
+ */
+final class CompressedPayload {
+
+    static final int BLOCK_SIZE = 1 << 20;
+
+    private static final int RAW_BLOCK = 1 << 31;
+
+    private CompressedPayload() {
+    }
+
+    /**
+     * Appends compressed file content to the archive.
+     *
+     * @param digest updated with file content, optional
+     * @return payload size in the archive
+     */
+    static long write(FileChannel source, long size, WritableByteChannel archive, Compression compression, ForkJoinPool pool,
+                      MessageDigest digest) throws IOException {
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+        long position = 0;
+        long storedSize = 0;
+        try {
+            while (position < size) {
+                byte[] block = new byte[(int) Math.min(BLOCK_SIZE, size - position)];
+                int n = readBlock(source, block, position);
+                if (n != block.length) {
+                    throw new RuntimeException(String.format("File size mismatch on write: expected=%d, actual=%d", size, position + n));
+                }
+                position += n;
+                if (digest != null) {
+                    digest.update(block);
+                }
+                pending.add(pool.submit(() -> encode(compression, block)));
+                if (pending.size() >= window) {
+                    storedSize += writeBlock(archive, IndexedTarArchiver.await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                storedSize += writeBlock(archive, IndexedTarArchiver.await(pending.poll()));
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        return storedSize;
+    }
+
+    /**
+     * Restores entry content to a new file using positional reads, archive position is left untouched.
+     *
+     * @return number of bytes written to the target
+     */
+    static long read(FileChannel archive, Catalog.Entry entry, Path target, Compression compression, ForkJoinPool pool)
+            throws IOException {
+        long[] position = {entry.getOffset()};
+        return read(length -> {
+            ByteBuffer data = IndexedTarArchiver.readFully(archive, length, position[0]);
+            position[0] += length;
+            return data;
+        }, entry, target, compression, pool);
+    }
+
+    /**
+     * Restores entry content to a new file reading the payload from the stream.
+     *
+     * @return number of bytes written to the target
+     */
+    static long read(InputStream archive, Catalog.Entry entry, Path target, Compression compression, ForkJoinPool pool)
+            throws IOException {
+        return read(length -> ByteBuffer.wrap(IndexedTarArchiver.readFully(archive, length)), entry, target, compression, pool);
+    }
+
+    /**
+     * Skips entry payload in the stream.
+     */
+    static void skip(InputStream archive, Catalog.Entry entry) throws IOException {
+        for (long position = 0; position < entry.getSize(); position += BLOCK_SIZE) {
+            int length = ByteBuffer.wrap(IndexedTarArchiver.readFully(archive, Integer.BYTES)).getInt() & ~RAW_BLOCK;
+            IndexedTarArchiver.skipFully(archive, length);
+        }
+    }
+
+    /**
+     * Decompresses a payload held in memory, e.g. a slice of a mapped archive.
+     */
+    static ByteBuffer decode(ByteBuffer payload, Catalog.Entry entry, Compression compression) throws IOException {
+        if (entry.getSize() > Integer.MAX_VALUE) {
+            throw new IOException("Entry too large to decompress in memory: " + entry.getName());
+        }
+        byte[] content = new byte[(int) entry.getSize()];
+        byte[] block = new byte[Math.min(BLOCK_SIZE, content.length)];
+        int position = 0;
+        try {
+            while (position < content.length) {
+                int header = payload.getInt();
+                int length = header & ~RAW_BLOCK;
+                int blockSize = Math.min(BLOCK_SIZE, content.length - position);
+                if ((header & RAW_BLOCK) != 0) {
+                    if (length != blockSize) {
+                        throw new IOException("Corrupted compressed block of " + entry.getName() + " at " + position);
+                    }
+                    payload.get(content, position, length);
+                } else {
+                    byte[] data = new byte[length];
+                    payload.get(data);
+                    compression.decompress(data, length, block, blockSize);
+                    System.arraycopy(block, 0, content, position, blockSize);
+                }
+                position += blockSize;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated compressed payload of " + entry.getName() + " at " + position);
+        }
+        return ByteBuffer.wrap(content);
+    }
+
+    private static long read(Frames frames, Catalog.Entry entry, Path target, Compression compression, ForkJoinPool pool)
+            throws IOException {
+        int window = Math.max(2, pool.getParallelism() * 2);
+        Deque<Future<?>> pending = new ArrayDeque<>();
+        long targetPosition = 0;
+        try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (targetPosition < entry.getSize()) {
+                int header = frames.next(Integer.BYTES).getInt();
+                int length = header & ~RAW_BLOCK;
+                boolean raw = (header & RAW_BLOCK) != 0;
+                int blockSize = (int) Math.min(BLOCK_SIZE, entry.getSize() - targetPosition);
+                if (raw && length != blockSize) {
+                    throw new IOException("Corrupted compressed block of " + entry.getName() + " at " + targetPosition);
+                }
+                ByteBuffer data = frames.next(length);
+                long blockPosition = targetPosition;
+                pending.add(pool.submit(() -> {
+                    ByteBuffer block = data;
+                    if (!raw) {
+                        byte[] content = new byte[blockSize];
+                        compression.decompress(data.array(), length, content, blockSize);
+                        block = ByteBuffer.wrap(content);
+                    }
+                    while (block.hasRemaining()) {
+                        targetChannel.write(block, blockPosition + block.position());
+                    }
+                    return null;
+                }));
+                if (pending.size() >= window) {
+                    IndexedTarArchiver.await(pending.poll());
+                }
+                targetPosition += blockSize;
+            }
+            while (!pending.isEmpty()) {
+                IndexedTarArchiver.await(pending.poll());
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+        return targetPosition;
+    }
+
+    private static ByteBuffer encode(Compression compression, byte[] block) {
+        byte[] compressed = compression.compress(block, block.length);
+        boolean raw = compressed.length >= block.length;
+        byte[] data = raw ? block : compressed;
+        return ByteBuffer.allocate(Integer.BYTES + data.length)
+                .putInt(raw ? data.length | RAW_BLOCK : data.length)
+                .put(data)
+                .flip();
+    }
+
+    private static long writeBlock(WritableByteChannel archive, ByteBuffer frame) throws IOException {
+        int length = frame.remaining();
+        IndexedTarArchiver.writeFully(archive, frame);
+        return length;
+    }
+
+    private static int readBlock(FileChannel source, byte[] block, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, position + buffer.position()) == -1) {
+                break;
+            }
+        }
+        return buffer.position();
+    }
+
+    @FunctionalInterface
+    private interface Frames {
+        /**
+         * @return next {@code length} bytes of the payload
+         */
+        ByteBuffer next(int length) throws IOException;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+
+/**
+ * Block compression codec. Payloads are split in fixed-size blocks compressed independently,
+ * so blocks of a single file can be compressed and decompressed in parallel.
+ * <p/>
+ * Implementations must be thread safe.
+ */
+public interface Compression {
+
+    /**
+     * Reserved id of uncompressed entries.
+     */
+    int NONE = 0;
+
+    /**
+     * Id recorded in the archive index, must be unique and in 1..127.
+     */
+    int getId();
+
+    byte[] compress(byte[] data, int length);
+
+    /**
+     * Restores exactly {@code targetLength} bytes into target.
+     */
+    void decompress(byte[] data, int length, byte[] target, int targetLength) throws IOException;
+}
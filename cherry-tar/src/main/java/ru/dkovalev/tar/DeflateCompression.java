@@ -0,0 +1,73 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate (no zlib header and checksum) from the JDK.
+ */
+public class DeflateCompression implements Compression {
+
+    public static final int ID = 1;
+
+    private final int level;
+
+    public DeflateCompression() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public DeflateCompression(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public int getId() {
+        return ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int length) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[length + (length >> 6) + 64];
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                n += deflater.deflate(buffer, n, buffer.length - n);
+            }
+            return Arrays.copyOf(buffer, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void decompress(byte[] data, int length, byte[] target, int targetLength) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, 0, length);
+            int n = 0;
+            while (n < targetLength && !inflater.finished()) {
+                int count = inflater.inflate(target, n, targetLength - n);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += count;
+            }
+            if (n != targetLength) {
+                throw new IOException(String.format("Deflate block size mismatch: expected=%d, actual=%d", targetLength, n));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted deflate block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
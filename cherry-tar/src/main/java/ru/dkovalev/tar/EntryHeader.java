@@ -0,0 +1,126 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local header preceding each entry in the payload area, so an archive can be read front to back
+ * from a pipe or socket without seeking to the index:
+ * <pre>
+ * [byte flags]                 # {@link CatalogWriter} flags, 0 marks the end of entries
+ * [varint length][utf-8 bytes] # full name
+ * [varint size]                # files only
+ * [varint last modified]       # files only, zigzag encoded millis
+ * [varint compression]         # stored files only, payload follows the header
+ * [varint length][utf-8 bytes] # duplicates only, name of the entry holding the payload
+ * </pre>
+ * References and duplicates have no payload.
+ */
+final class EntryHeader {
+
+    static final int DUPLICATE = 1 << 5;
+
+    private final Catalog.Entry entry;
+    private final String duplicateOf;
+
+    private EntryHeader(Catalog.Entry entry, String duplicateOf) {
+        this.entry = entry;
+        this.duplicateOf = duplicateOf;
+    }
+
+    Catalog.Entry getEntry() {
+        return entry;
+    }
+
+    /**
+     * @return name of the entry holding the payload of a duplicate, null otherwise
+     */
+    String getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    /**
+     * @param duplicateOf name of the entry holding the payload of a duplicate, null otherwise
+     */
+    static void write(Catalog.Entry entry, String duplicateOf, OutputStream os) throws IOException {
+        int flags = CatalogWriter.ENTRY;
+        if (entry.isDirectory()) {
+            flags |= CatalogWriter.DIRECTORY;
+        }
+        if (duplicateOf != null) {
+            flags |= DUPLICATE;
+        } else if (entry.isCompressed()) {
+            flags |= CatalogWriter.COMPRESSED;
+        }
+        if (entry.isReference()) {
+            flags |= CatalogWriter.REFERENCE;
+        }
+        os.write(flags);
+        writeString(entry.getName(), os);
+        if (entry.isFile()) {
+            CatalogWriter.writeVarint(os, entry.getSize());
+            CatalogWriter.writeVarint(os, CatalogWriter.zigzag(entry.getLastModified()));
+            if (duplicateOf != null) {
+                writeString(duplicateOf, os);
+            } else if (!entry.isReference()) {
+                CatalogWriter.writeVarint(os, entry.getCompression());
+            }
+        }
+    }
+
+    /**
+     * @return length of the header of a stored file, its payload follows right after it
+     */
+    static long storedLength(Catalog.Entry entry) {
+        int nameLength = entry.getName().getBytes(StandardCharsets.UTF_8).length;
+        return 1 + CatalogWriter.varintLength(nameLength) + nameLength
+                + CatalogWriter.varintLength(entry.getSize())
+                + CatalogWriter.varintLength(CatalogWriter.zigzag(entry.getLastModified()))
+                + CatalogWriter.varintLength(entry.getCompression());
+    }
+
+    static void writeEnd(OutputStream os) throws IOException {
+        os.write(CatalogWriter.END);
+    }
+
+    /**
+     * @return next header or null at the end of entries
+     */
+    static EntryHeader read(InputStream is) throws IOException {
+        int flags = CatalogReader.readByte(is);
+        if (flags == CatalogWriter.END) {
+            return null;
+        }
+        if ((flags & CatalogWriter.ENTRY) == 0) {
+            throw new IOException("Corrupted entry header flags: " + flags);
+        }
+        String name = readString(is);
+        if ((flags & CatalogWriter.DIRECTORY) != 0) {
+            return new EntryHeader(new Catalog.Entry(name, true), null);
+        }
+        long size = CatalogReader.readVarint(is);
+        long lastModified = CatalogReader.unzigzag(CatalogReader.readVarint(is));
+        Catalog.Entry entry = Catalog.Entry.file(name, size, lastModified);
+        if ((flags & DUPLICATE) != 0) {
+            return new EntryHeader(entry, readString(is));
+        }
+        if ((flags & CatalogWriter.REFERENCE) != 0) {
+            return new EntryHeader(entry.asReference(), null);
+        }
+        int compression = (int) CatalogReader.readVarint(is);
+        return new EntryHeader(entry.withPayload(-1, -1, compression), null);
+    }
+
+    private static void writeString(String s, OutputStream os) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        CatalogWriter.writeVarint(os, bytes.length);
+        os.write(bytes);
+    }
+
+    private static String readString(InputStream is) throws IOException {
+        int length = (int) CatalogReader.readVarint(is);
+        return new String(CatalogReader.readBytes(is, length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,322 @@
+package ru.dkovalev.tar;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opened {@link IndexedTarArchiver} archive: validated header and trailer, lazily loaded index
+ * and lazily opened chain of base archives of an incremental archive.
+ * <p/>
+ * Framing:
+ * <pre>
+ * [int magic][int version][int length][utf-8 bytes]   # base archive path, empty unless incremental
+ * ...
+ * [long index offset][int magic]
+ * </pre>
+ * Appends add segments of entries, index and trailer after the trailer, the last complete trailer is in effect.
+ * A crash in the middle of an append leaves a torn tail after it, which is ignored.
+ */
+final class IndexedArchive implements Closeable {
+
+    static final int MAGIC = 0x43485259; // "CHRY"
+    static final int VERSION = 8;
+
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final String baseName;
+    private final long indexOffset;
+    private final long size;
+
+    private Map<String, Catalog.Entry> entries;
+    private IndexedArchive base;
+    private MappedByteBuffer mapping;
+
+    private IndexedArchive(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+
+        long archiveSize = channel.size();
+        if (archiveSize < 3 * Integer.BYTES + TRAILER_SIZE) {
+            throw new IOException("Not an indexed archive: " + path);
+        }
+        ByteBuffer header = IndexedTarArchiver.readFully(channel, 3 * Integer.BYTES, 0);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an indexed archive: " + path);
+        }
+        checkVersion(header.getInt());
+        int baseNameLength = header.getInt();
+        if (baseNameLength < 0 || baseNameLength > archiveSize - TRAILER_SIZE - header.capacity()) {
+            throw new IOException("Corrupted archive header: " + path);
+        }
+        ByteBuffer baseNameBytes = IndexedTarArchiver.readFully(channel, baseNameLength, header.capacity());
+        this.baseName = StandardCharsets.UTF_8.decode(baseNameBytes).toString();
+
+        long headerSize = header.capacity() + baseNameLength;
+        ByteBuffer trailer = IndexedTarArchiver.readFully(channel, TRAILER_SIZE, archiveSize - TRAILER_SIZE);
+        long lastIndexOffset = trailer.getLong();
+        if (trailer.getInt() != MAGIC || lastIndexOffset < headerSize || lastIndexOffset > archiveSize - TRAILER_SIZE) {
+            archiveSize = committedSize(channel, headerSize);
+            if (archiveSize == -1) {
+                throw new IOException("Corrupted archive trailer: " + path);
+            }
+            lastIndexOffset = IndexedTarArchiver.readFully(channel, TRAILER_SIZE, archiveSize - TRAILER_SIZE).getLong();
+        }
+        this.indexOffset = lastIndexOffset;
+        this.size = archiveSize;
+    }
+
+    /**
+     * Walks entries front to back for the end of the last complete trailer, so an archive whose append
+     * was cut short by a crash is read as it was before the append.
+     *
+     * @return archive size up to the end of the last complete trailer, -1 if there is none
+     */
+    private static long committedSize(FileChannel channel, long headerSize) throws IOException {
+        long archiveSize = channel.size();
+        channel.position(headerSize);
+        CountingInputStream is = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        long committedSize = -1;
+        try {
+            while (is.getCount() < archiveSize - headerSize) {
+                for (EntryHeader header = EntryHeader.read(is); header != null; header = EntryHeader.read(is)) {
+                    IndexedTarArchiver.skipPayload(is, header);
+                }
+                long indexOffset = headerSize + is.getCount();
+                if (skipIndex(is) != indexOffset) {
+                    break;
+                }
+                committedSize = headerSize + is.getCount();
+            }
+        } catch (IOException | RuntimeException e) {
+            // torn tail
+        }
+        return committedSize;
+    }
+
+    /**
+     * Reads through the index and trailer following the end of entries marker of an archive read front to back.
+     *
+     * @return index offset recorded in the trailer
+     */
+    static long skipIndex(InputStream is) throws IOException {
+        CatalogReader indexReader = new CatalogReader(is);
+        while (indexReader.read() != null) {
+            // entries are known from their headers
+        }
+        ByteBuffer trailer = ByteBuffer.wrap(IndexedTarArchiver.readFully(is, TRAILER_SIZE));
+        long indexOffset = trailer.getLong();
+        if (trailer.getInt() != MAGIC) {
+            throw new IOException("Corrupted archive trailer");
+        }
+        return indexOffset;
+    }
+
+    static IndexedArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new IndexedArchive(path, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param baseName base archive path relative to the archive directory, empty for a full archive
+     */
+    static ByteBuffer header(String baseName) {
+        byte[] baseNameBytes = baseName.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(3 * Integer.BYTES + baseNameBytes.length)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(baseNameBytes.length)
+                .put(baseNameBytes)
+                .flip();
+    }
+
+    static ByteBuffer trailer(long indexOffset) {
+        return ByteBuffer.allocate(TRAILER_SIZE).putLong(indexOffset).putInt(MAGIC).flip();
+    }
+
+    /**
+     * Reads the header of an archive read front to back.
+     *
+     * @return base archive path, empty for a full archive
+     */
+    static String readHeader(InputStream is) throws IOException {
+        DataInputStream dis = new DataInputStream(is);
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not an indexed archive");
+        }
+        checkVersion(dis.readInt());
+        int baseNameLength = dis.readInt();
+        if (baseNameLength < 0) {
+            throw new IOException("Corrupted archive header");
+        }
+        byte[] baseNameBytes = new byte[baseNameLength];
+        dis.readFully(baseNameBytes);
+        return new String(baseNameBytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkVersion(int version) throws IOException {
+        if (version != VERSION) {
+            throw new IOException(String.format("Unsupported archive version: expected=%d, actual=%d", VERSION, version));
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return archive size up to the end of the last complete trailer, data after it is the torn tail of an append
+     */
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return offset of the end of entries marker preceding the index
+     */
+    long getEntriesEnd() throws IOException {
+        long entriesEnd = indexOffset - 1;
+        if (IndexedTarArchiver.readFully(channel, 1, entriesEnd).get() != CatalogWriter.END) {
+            throw new IOException("Corrupted end of entries: " + path);
+        }
+        return entriesEnd;
+    }
+
+    /**
+     * Payloads are to be read with positional reads only, the channel is shared between threads.
+     */
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Read-only view of a payload. Archives up to 2 GiB are mapped once and sliced,
+     * larger ones are mapped payload by payload.
+     */
+    synchronized ByteBuffer map(long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Payload too large to map: " + size);
+        }
+        long archiveSize = channel.size();
+        if (offset < 0 || offset + size > archiveSize) {
+            throw new IOException(String.format("Payload out of archive bounds: offset=%d, size=%d", offset, size));
+        }
+        if (archiveSize > Integer.MAX_VALUE) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        }
+        if (mapping == null) {
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, archiveSize);
+        }
+        return mapping.duplicate().limit((int) (offset + size)).position((int) offset).slice();
+    }
+
+    boolean isIncremental() {
+        return !baseName.isEmpty();
+    }
+
+    synchronized CatalogReader openIndex() throws IOException {
+        channel.position(indexOffset);
+        return new CatalogReader(new BufferedInputStream(Channels.newInputStream(channel)));
+    }
+
+    /**
+     * @return entry with the given name or null
+     */
+    synchronized Catalog.Entry getEntry(String name) throws IOException {
+        if (entries == null) {
+            Map<String, Catalog.Entry> index = new HashMap<>();
+            CatalogReader indexReader = openIndex();
+            for (Catalog.Entry entry = indexReader.read(); entry != null; entry = indexReader.read()) {
+                index.put(entry.getName(), entry);
+            }
+            entries = index;
+        }
+        return entries.get(name);
+    }
+
+    synchronized IndexedArchive getBase() throws IOException {
+        if (base == null) {
+            if (!isIncremental()) {
+                throw new IOException("Not an incremental archive: " + path);
+            }
+            base = open(path.toAbsolutePath().getParent().resolve(baseName));
+        }
+        return base;
+    }
+
+    /**
+     * Counts bytes read, so positions are known while reading an archive through a buffer.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            if (base != null) {
+                base.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,961 @@
+package ru.dkovalev.tar;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * Archive with a trailing index, so a single entry can be extracted with one seek
+ * instead of reading through every preceding payload.
+ * <p/>
+ * Layout:
+ * <pre>
+ * [header]                    # magic, version and base archive, see {@link IndexedArchive}
+ * ([entry header][payload])*  # see {@link EntryHeader}, {@link CompressedPayload} for compressed payloads
+ * [byte 0]                    # end of entries
+ * [index]                     # {@link CatalogWriter} encoded catalog with payload offsets and sizes
+ * [long index offset][int magic]
+ * ...                         # segments of appended entries, index and trailer
+ * </pre>
+ * Entry headers make the archive readable front to back, so it can be written to and read from
+ * pipes and sockets, while the index serves random access to archive files.
+ * Incremental archives store payloads of new and changed files only, unchanged files are references
+ * to the same name in the base archive. With deduplication identical files share a single payload.
+ */
+public class IndexedTarArchiver implements TarArchiver {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private int extractThreads = 1;
+    private int walkThreads = 1;
+    private int compressionThreads = Runtime.getRuntime().availableProcessors();
+    private boolean contentDigests;
+    private boolean deduplicate;
+    private boolean linkDuplicates;
+    private boolean checksums = true;
+    private Compression compression;
+    private ArchiveListener listener = ArchiveListener.NONE;
+    private final Map<Integer, Compression> compressions = new HashMap<>();
+
+    public IndexedTarArchiver() {
+        registerCompression(new DeflateCompression());
+    }
+
+    /**
+     * Number of threads writing extracted files, payloads are read with positional reads
+     * so files are written concurrently from the same archive channel.
+     */
+    public void setExtractThreads(int extractThreads) {
+        if (extractThreads < 1) {
+            throw new IllegalArgumentException("Extract threads must be >= 1: " + extractThreads);
+        }
+        this.extractThreads = extractThreads;
+    }
+
+    /**
+     * Number of threads listing directories on pack. With more than one the tree is catalogued
+     * by {@link ParallelCatalogBuilder} before copying, otherwise files are copied as the tree is walked.
+     */
+    public void setWalkThreads(int walkThreads) {
+        if (walkThreads < 1) {
+            throw new IllegalArgumentException("Walk threads must be >= 1: " + walkThreads);
+        }
+        this.walkThreads = walkThreads;
+    }
+
+    /**
+     * Number of threads compressing blocks on pack and decompressing them on unpack, the number of processors
+     * by default. Each operation runs them in its own pool, decompressed blocks are written from these threads.
+     */
+    public void setCompressionThreads(int compressionThreads) {
+        if (compressionThreads < 1) {
+            throw new IllegalArgumentException("Compression threads must be >= 1: " + compressionThreads);
+        }
+        this.compressionThreads = compressionThreads;
+    }
+
+    /**
+     * Compresses file payloads on pack, blocks of each file are compressed in parallel
+     * on {@link #setCompressionThreads(int) compression threads}. Null stores payloads as is.
+     */
+    public void setCompression(Compression compression) {
+        if (compression != null) {
+            registerCompression(compression);
+        }
+        this.compression = compression;
+    }
+
+    /**
+     * Makes a custom compression available for unpack, {@link DeflateCompression} is always available.
+     */
+    public void registerCompression(Compression compression) {
+        if (compression.getId() <= Compression.NONE || compression.getId() > 127) {
+            throw new IllegalArgumentException("Compression id must be in 1..127: " + compression.getId());
+        }
+        compressions.put(compression.getId(), compression);
+    }
+
+    /**
+     * Records SHA-256 of file content on pack, computed while copying. Incremental archives then
+     * compare content digests instead of modification times with entries of a base archive having them.
+     * Payloads go through a heap buffer when enabled.
+     */
+    public void setContentDigests(boolean contentDigests) {
+        this.contentDigests = contentDigests;
+    }
+
+    /**
+     * Stores identical file content once on pack, entries of duplicates point to the same payload.
+     * Content is hashed while copying and the payload of a duplicate is truncated right away,
+     * implies {@link #setContentDigests(boolean) content digests}.
+     */
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * Creates hard links to the first extracted copy for files sharing a payload, instead of copying it.
+     * Linked files share their content afterwards.
+     */
+    public void setLinkDuplicates(boolean linkDuplicates) {
+        this.linkDuplicates = linkDuplicates;
+    }
+
+    /**
+     * Records CRC32C of each payload as stored in the archive, computed while it is written,
+     * so {@link #verify(String)} checks an archive without decompressing it. Enabled by default.
+     */
+    public void setChecksums(boolean checksums) {
+        this.checksums = checksums;
+    }
+
+    /**
+     * Entries are reported from extract threads when extracting or verifying concurrently.
+     */
+    @Override
+    public void setListener(ArchiveListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void pack(String archiveName, List<String> fileNames) throws IOException {
+        pack(archiveName, fileNames, (IndexedArchive) null);
+    }
+
+    /**
+     * Creates an incremental archive storing only files new or changed since the base archive.
+     * Files are matched with base archive entries by name, so the same relative names have to be used
+     * for both archives. The base archive is referred by its path relative to the new archive directory.
+     */
+    public void pack(String archiveName, List<String> fileNames, String baseArchiveName) throws IOException {
+        Path archivePath = Paths.get(archiveName);
+        Path basePath = Paths.get(baseArchiveName);
+        if (Files.exists(archivePath) && Files.isSameFile(archivePath, basePath)) {
+            throw new IllegalArgumentException("Archive can not be its own base: " + archiveName);
+        }
+        try (IndexedArchive base = IndexedArchive.open(basePath)) {
+            pack(archiveName, fileNames, base);
+        }
+    }
+
+    /**
+     * Adds files to an existing archive without rewriting its content.
+     * Nothing in the archive is overwritten: new entries, an index of all entries and a new trailer are written
+     * after the current trailer, the trailer last once the rest is on disk. An append failing midway is truncated
+     * away, one cut short by a crash leaves a torn tail that random access readers ignore and the next append
+     * drops, so existing entries stay readable either way. Each append adds a copy of the whole index, entries
+     * of the same name as added ones are replaced and their payloads remain as unreferenced space. Added files
+     * of an incremental archive are matched with its base as on pack, appending to a base archive breaks archives
+     * based on it.
+     */
+    public void append(String archiveName, List<String> fileNames) throws IOException {
+        try (IndexedArchive existing = IndexedArchive.open(Paths.get(archiveName));
+             FileChannel archive = FileChannel.open(Paths.get(archiveName), StandardOpenOption.WRITE)) {
+            IndexedArchive base = existing.isIncremental() ? existing.getBase() : null;
+            new Packer(archive, archive, base).append(existing, fileNames);
+        }
+    }
+
+    @Override
+    public void pack(WritableByteChannel archive, List<String> fileNames) throws IOException {
+        new Packer(archive, null, null).pack(fileNames, "");
+    }
+
+    /**
+     * Writes an incremental archive front to back. The base archive is recorded as given, a relative path
+     * is resolved against the current directory on stream unpack and against the archive directory otherwise.
+     */
+    public void pack(WritableByteChannel archive, List<String> fileNames, String baseArchiveName) throws IOException {
+        try (IndexedArchive base = IndexedArchive.open(Paths.get(baseArchiveName))) {
+            new Packer(archive, null, base).pack(fileNames, baseArchiveName);
+        }
+    }
+
+    private void pack(String archiveName, List<String> fileNames, IndexedArchive base) throws IOException {
+        Path archivePath = Paths.get(archiveName);
+        String baseName = "";
+        if (base != null) {
+            Path archiveDirectory = archivePath.toAbsolutePath().getParent();
+            baseName = archiveDirectory.relativize(base.getPath().toAbsolutePath()).toString();
+        }
+        try (FileChannel archive = FileChannel.open(archivePath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new Packer(archive, archive, base).pack(fileNames, baseName);
+        }
+    }
+
+    /**
+     * Single pass: entries are written front to back as the file tree is walked, each with a local
+     * {@link EntryHeader} and its payload. The index is kept encoded in memory (a few bytes per entry)
+     * and appended at the end, offsets are counted rather than taken from the channel.
+     */
+    private class Packer {
+
+        private final WritableByteChannel archive;
+        /** Same channel when written to a file, a stored payload of a duplicate is then truncated. */
+        private final FileChannel seekable;
+        /** Payloads are written through it when checksums are enabled. */
+        private final ChecksumChannel checksumChannel;
+        private final IndexedArchive base;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final CatalogWriter indexWriter = new CatalogWriter(index);
+        private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        /** Stored entries by content digest, for deduplication. */
+        private final Map<ByteBuffer, Catalog.Entry> payloads = new HashMap<>();
+        private final CompressionPool compressionPool = new CompressionPool();
+        private long position;
+        /** Time spent on entries, the rest of a single pass walk is reported as catalog time. */
+        private long entryNanos;
+
+        Packer(WritableByteChannel archive, FileChannel seekable, IndexedArchive base) {
+            this.archive = archive;
+            this.seekable = seekable;
+            this.base = base;
+            this.checksumChannel = checksums ? new ChecksumChannel(archive) : null;
+        }
+
+        void pack(List<String> fileNames, String baseName) throws IOException {
+            try (compressionPool) {
+                write(IndexedArchive.header(baseName));
+                long start = System.nanoTime();
+                if (walkThreads > 1) {
+                    Catalog catalog = new ParallelCatalogBuilder(walkThreads).createCatalog(fileNames);
+                    listener.cataloged(System.nanoTime() - start);
+                    for (Catalog.Entry entry : catalog.getEntries()) {
+                        add(entry);
+                    }
+                } else {
+                    CatalogBuilder.walk(fileNames, this::add);
+                    listener.cataloged(System.nanoTime() - start - entryNanos);
+                }
+                finish();
+            }
+        }
+
+        /**
+         * Carries over entries of the existing archive not replaced by the given files, then writes
+         * the files, the index and the trailer after the last complete trailer.
+         */
+        void append(IndexedArchive existing, List<String> fileNames) throws IOException {
+            long start = System.nanoTime();
+            Catalog added = walkThreads > 1
+                    ? new ParallelCatalogBuilder(walkThreads).createCatalog(fileNames)
+                    : CatalogBuilder.createCatalog(fileNames);
+            Set<String> addedNames = new HashSet<>();
+            for (Catalog.Entry entry : added.getEntries()) {
+                addedNames.add(entry.getName());
+            }
+            CatalogReader indexReader = existing.openIndex();
+            for (Catalog.Entry entry = indexReader.read(); entry != null; entry = indexReader.read()) {
+                if (addedNames.contains(entry.getName())) {
+                    continue;
+                }
+                indexWriter.write(entry);
+                if (entry.isFile() && !entry.isReference() && entry.getDigest() != null) {
+                    payloads.putIfAbsent(ByteBuffer.wrap(entry.getDigest()), entry);
+                }
+            }
+            listener.cataloged(System.nanoTime() - start);
+            long committedSize = existing.getSize();
+            seekable.truncate(committedSize);
+            position = committedSize;
+            seekable.position(position);
+            try (compressionPool) {
+                for (Catalog.Entry entry : added.getEntries()) {
+                    add(entry);
+                }
+                long indexOffset = writeIndex();
+                seekable.force(false);
+                write(IndexedArchive.trailer(indexOffset));
+                seekable.force(false);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    seekable.truncate(committedSize);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+                throw e;
+            }
+        }
+
+        private void finish() throws IOException {
+            long indexOffset = writeIndex();
+            write(IndexedArchive.trailer(indexOffset));
+        }
+
+        /**
+         * Writes the end of entries marker and the index.
+         *
+         * @return index offset
+         */
+        private long writeIndex() throws IOException {
+            header.reset();
+            EntryHeader.writeEnd(header);
+            write(ByteBuffer.wrap(header.toByteArray()));
+            indexWriter.finish();
+            long indexOffset = position;
+            write(ByteBuffer.wrap(index.toByteArray()));
+            return indexOffset;
+        }
+
+        private void add(Catalog.Entry entry) throws IOException {
+            long start = System.nanoTime();
+            Catalog.Entry packed = packEntry(entry);
+            long nanos = System.nanoTime() - start;
+            entryNanos += nanos;
+            indexWriter.write(packed);
+            listener.entryProcessed(packed, packed.isFile() && !packed.isReference() ? packed.getSize() : 0, nanos);
+        }
+
+        private Catalog.Entry packEntry(Catalog.Entry entry) throws IOException {
+            if (entry.isDirectory()) {
+                writeHeader(entry, null);
+                return entry;
+            }
+            Path file = Paths.get(entry.getName());
+            if (base != null) {
+                Catalog.Entry reference = reference(entry, base.getEntry(entry.getName()), file);
+                if (reference != null) {
+                    writeHeader(reference, null);
+                    return reference;
+                }
+            }
+            if (deduplicate && seekable == null) {
+                // a stream can not be rolled back, so content is hashed before it is stored
+                byte[] contentDigest = contentDigest(file);
+                Catalog.Entry original = payloads.get(ByteBuffer.wrap(contentDigest));
+                if (original != null && original.getSize() == entry.getSize()) {
+                    return duplicate(entry.withDigest(contentDigest), original);
+                }
+            }
+            long headerOffset = position;
+            Catalog.Entry stored = store(entry, file);
+            if (deduplicate) {
+                Catalog.Entry original = payloads.putIfAbsent(ByteBuffer.wrap(stored.getDigest()), stored);
+                if (original != null && original.getSize() == stored.getSize()) {
+                    seekable.truncate(headerOffset);
+                    seekable.position(headerOffset);
+                    position = headerOffset;
+                    return duplicate(stored, original);
+                }
+            }
+            return stored;
+        }
+
+        private Catalog.Entry duplicate(Catalog.Entry entry, Catalog.Entry original) throws IOException {
+            writeHeader(entry, original.getName());
+            return entry.withPayload(original.getOffset(), original.getStoredSize(), original.getCompression())
+                    .withChecksum(original.getChecksum());
+        }
+
+        private Catalog.Entry store(Catalog.Entry entry, Path file) throws IOException {
+            MessageDigest digest = contentDigests || deduplicate ? newDigest() : null;
+            boolean compressed = compression != null && entry.getSize() > 0;
+            writeHeader(entry.withPayload(-1, -1, compressed ? compression.getId() : Compression.NONE), null);
+            long offset = position;
+            WritableByteChannel payload = archive;
+            if (checksumChannel != null) {
+                checksumChannel.reset();
+                payload = checksumChannel;
+            }
+            Catalog.Entry stored;
+            if (compressed) {
+                try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                    long storedSize = CompressedPayload.write(source, entry.getSize(), payload, compression, compressionPool.get(), digest);
+                    position += storedSize;
+                    stored = entry.withPayload(offset, storedSize, compression.getId());
+                }
+            } else {
+                long bytesWritten;
+                if (digest != null) {
+                    try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                        bytesWritten = copy(source, payload, digest);
+                    }
+                } else {
+                    bytesWritten = writePayload(file, payload);
+                }
+                position += bytesWritten;
+                if (entry.getSize() != bytesWritten) {
+                    throw new RuntimeException(String.format("File size mismatch on write: expected=%d, actual=%d", entry.getSize(), bytesWritten));
+                }
+                stored = entry.withPayload(offset, entry.getSize(), Compression.NONE);
+            }
+            stored = stored.withDigest(digest(digest));
+            return checksumChannel != null ? stored.withChecksum(checksumChannel.getChecksum()) : stored;
+        }
+
+        private void writeHeader(Catalog.Entry entry, String duplicateOf) throws IOException {
+            header.reset();
+            EntryHeader.write(entry, duplicateOf, header);
+            write(ByteBuffer.wrap(header.toByteArray()));
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            position += buffer.remaining();
+            writeFully(archive, buffer);
+        }
+    }
+
+    /**
+     * @return reference entry if the file is unchanged since the base archive, null otherwise
+     */
+    private Catalog.Entry reference(Catalog.Entry entry, Catalog.Entry baseEntry, Path file) throws IOException {
+        if (baseEntry == null || baseEntry.isDirectory() || baseEntry.getSize() != entry.getSize()) {
+            return null;
+        }
+        if ((contentDigests || deduplicate) && baseEntry.getDigest() != null) {
+            byte[] contentDigest = contentDigest(file);
+            return Arrays.equals(contentDigest, baseEntry.getDigest()) ? entry.asReference().withDigest(contentDigest) : null;
+        }
+        if (baseEntry.getLastModified() != entry.getLastModified()) {
+            return null;
+        }
+        return entry.asReference().withDigest(baseEntry.getDigest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] digest(MessageDigest digest) {
+        return digest == null ? null : digest.digest();
+    }
+
+    private static byte[] contentDigest(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            copy(source, null, digest);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Copies through a heap buffer updating the digest, target is optional.
+     */
+    private static long copy(FileChannel source, WritableByteChannel target, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long bytesCopied = 0;
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            digest.update(buffer.array(), 0, buffer.limit());
+            bytesCopied += buffer.limit();
+            if (target != null) {
+                writeFully(target, buffer);
+            }
+            buffer.clear();
+        }
+        return bytesCopied;
+    }
+
+    /**
+     * Appends file content to the archive. With checksums enabled the archive is a {@link ChecksumChannel}.
+     */
+    protected long writePayload(Path file, WritableByteChannel archive) throws IOException {
+        return Files.copy(file, Channels.newOutputStream(archive));
+    }
+
+    /**
+     * Content of incremental archives is restored from base archives, they have to be at the same
+     * relative location as on pack.
+     */
+    @Override
+    public void unpack(String archiveName, String directory) throws IOException {
+        try (IndexedArchive archive = IndexedArchive.open(Paths.get(archiveName))) {
+            long start = System.nanoTime();
+            Catalog catalog = archive.openIndex().readCatalog();
+            listener.cataloged(System.nanoTime() - start);
+            unpack(archive, catalog.getEntries(), directory);
+        }
+    }
+
+    @Override
+    public void unpack(String archiveName, String directory, List<String> patterns) throws IOException {
+        try (IndexedArchive archive = IndexedArchive.open(Paths.get(archiveName))) {
+            long start = System.nanoTime();
+            List<Catalog.Entry> selected = archive.openIndex().readCatalog().select(patterns);
+            listener.cataloged(System.nanoTime() - start);
+            unpack(archive, selected, directory);
+        }
+    }
+
+    /**
+     * Reads entries front to back by their local headers, the index is not used. Files are written
+     * one at a time as they arrive, blocks of compressed files are still decompressed in parallel.
+     * Entries of appended segments replace earlier entries of the same name.
+     * Content of incremental archives is restored from the base archive resolved against the current directory.
+     */
+    @Override
+    public void unpack(ReadableByteChannel archive, String directory) throws IOException {
+        Path targetDirectory = Paths.get(directory);
+        InputStream is = new BufferedInputStream(Channels.newInputStream(archive));
+        String baseName = IndexedArchive.readHeader(is);
+        Map<String, Path> extracted = new HashMap<>();
+        Set<String> files = new HashSet<>();
+        IndexedArchive base = null;
+        try (CompressionPool compressionPool = new CompressionPool()) {
+            do {
+                for (EntryHeader header = EntryHeader.read(is); header != null; header = EntryHeader.read(is)) {
+                    Catalog.Entry entry = header.getEntry();
+                    Path target = target(targetDirectory, entry.getName());
+                    long start = System.nanoTime();
+                    if (entry.isDirectory()) {
+                        Files.createDirectories(target);
+                        processed(entry, 0, start);
+                        continue;
+                    }
+                    Files.createDirectories(target.getParent());
+                    if (!files.add(entry.getName())) {
+                        // replaced by an entry appended later
+                        Files.delete(target);
+                    }
+                    if (header.getDuplicateOf() != null) {
+                        Path original = extracted.get(header.getDuplicateOf());
+                        if (original == null) {
+                            throw new IOException("Duplicate " + entry.getName() + " precedes its original " + header.getDuplicateOf());
+                        }
+                        copyDuplicate(original, target);
+                        // append may pick a duplicate as the original of later files, e.g. once the original is replaced
+                        extracted.put(entry.getName(), target);
+                    } else if (entry.isReference()) {
+                        if (baseName.isEmpty()) {
+                            throw new IOException("Reference " + entry.getName() + " in a full archive");
+                        }
+                        if (base == null) {
+                            base = IndexedArchive.open(Paths.get(baseName));
+                        }
+                        extractFile(base, baseEntry(base, entry), target, compressionPool);
+                    } else {
+                        long bytesRead = entry.isCompressed()
+                                ? CompressedPayload.read(is, entry, target, compressionOf(entry), compressionPool.get())
+                                : copy(is, entry.getSize(), target);
+                        if (entry.getSize() != bytesRead) {
+                            throw new RuntimeException(String.format("File size mismatch on read: expected=%d, actual=%d", entry.getSize(), bytesRead));
+                        }
+                        extracted.put(entry.getName(), target);
+                    }
+                    processed(entry, entry.getSize(), start);
+                }
+            } while (nextSegment(is));
+        } finally {
+            if (base != null) {
+                base.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the directory skeleton first, then extracts files, concurrently if configured so.
+     * All entry names are checked before anything is extracted.
+     */
+    private void unpack(IndexedArchive archive, List<Catalog.Entry> entries, String directory) throws IOException {
+        Path targetDirectory = Paths.get(directory);
+        for (Catalog.Entry entry : entries) {
+            target(targetDirectory, entry.getName());
+        }
+        Set<Path> directories = new LinkedHashSet<>();
+        List<Catalog.Entry> files = new ArrayList<>();
+        for (Catalog.Entry entry : entries) {
+            Path target = target(targetDirectory, entry.getName());
+            if (entry.isDirectory()) {
+                long start = System.nanoTime();
+                Files.createDirectories(target);
+                processed(entry, 0, start);
+            } else {
+                directories.add(target.getParent());
+                files.add(entry);
+            }
+        }
+        for (Path dir : directories) {
+            Files.createDirectories(dir);
+        }
+        // payload shared by several entries is extracted once, the rest are copies of the first file
+        Map<Long, Catalog.Entry> payloads = new HashMap<>();
+        List<Catalog.Entry> duplicates = new ArrayList<>();
+        List<Catalog.Entry> originals = new ArrayList<>();
+        for (Catalog.Entry entry : files) {
+            boolean shared = !entry.isReference() && entry.getStoredSize() > 0;
+            if (shared && payloads.putIfAbsent(entry.getOffset(), entry) != null) {
+                duplicates.add(entry);
+            } else {
+                originals.add(entry);
+            }
+        }
+        try (CompressionPool compressionPool = new CompressionPool()) {
+            forEach(originals, entry -> {
+                long start = System.nanoTime();
+                extractFile(archive, entry, target(targetDirectory, entry.getName()), compressionPool);
+                processed(entry, entry.getSize(), start);
+            });
+        }
+        forEach(duplicates, entry -> {
+            long start = System.nanoTime();
+            Path original = target(targetDirectory, payloads.get(entry.getOffset()).getName());
+            copyDuplicate(original, target(targetDirectory, entry.getName()));
+            processed(entry, entry.getSize(), start);
+        });
+    }
+
+    /**
+     * Resolves an entry name against the directory it is extracted to. Absolute names and names
+     * escaping the directory, e.g. "../evil", are rejected, archives may come from untrusted sources.
+     */
+    static Path target(Path directory, String name) throws IOException {
+        Path entryPath = Paths.get(name);
+        Path root = directory.toAbsolutePath().normalize();
+        Path target = root.resolve(entryPath).normalize();
+        if (entryPath.isAbsolute() || !target.startsWith(root)) {
+            throw new IOException("Entry outside of the target directory: " + name);
+        }
+        return target;
+    }
+
+    private void processed(Catalog.Entry entry, long bytes, long startNanos) {
+        listener.entryProcessed(entry, bytes, System.nanoTime() - startNanos);
+    }
+
+    private void copyDuplicate(Path original, Path target) throws IOException {
+        if (linkDuplicates) {
+            Files.createLink(target, original);
+        } else {
+            Files.copy(original, target);
+        }
+    }
+
+    /**
+     * Runs the action on extract threads.
+     */
+    private void forEach(List<Catalog.Entry> files, CatalogBuilder.EntryConsumer action) throws IOException {
+        if (extractThreads == 1) {
+            for (Catalog.Entry entry : files) {
+                action.accept(entry);
+            }
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(extractThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (Catalog.Entry entry : files) {
+                futures.add(executor.submit(() -> {
+                    action.accept(entry);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void extractFile(IndexedArchive archive, Catalog.Entry entry, Path target, CompressionPool compressionPool)
+            throws IOException {
+        while (entry.isReference()) {
+            archive = archive.getBase();
+            entry = baseEntry(archive, entry);
+        }
+        long bytesRead;
+        if (entry.isCompressed()) {
+            bytesRead = CompressedPayload.read(archive.getChannel(), entry, target, compressionOf(entry), compressionPool.get());
+        } else {
+            bytesRead = readPayload(archive.getChannel(), entry.getOffset(), entry.getSize(), target);
+        }
+        if (entry.getSize() != bytesRead) {
+            throw new RuntimeException(String.format("File size mismatch on read: expected=%d, actual=%d", entry.getSize(), bytesRead));
+        }
+    }
+
+    /**
+     * Fork-join pool of an operation, created on the first compressed payload and shut down with the operation,
+     * so blocking block writes never land on the common pool shared with the rest of the application.
+     */
+    private final class CompressionPool implements Closeable {
+
+        private ForkJoinPool pool;
+
+        synchronized ForkJoinPool get() {
+            if (pool == null) {
+                pool = new ForkJoinPool(compressionThreads);
+            }
+            return pool;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    static Catalog.Entry baseEntry(IndexedArchive base, Catalog.Entry reference) throws IOException {
+        Catalog.Entry baseEntry = base.getEntry(reference.getName());
+        if (baseEntry == null || baseEntry.isDirectory() || baseEntry.getSize() != reference.getSize()) {
+            throw new IOException("Referenced file " + reference.getName() + " is missing in base archive " + base.getPath());
+        }
+        return baseEntry;
+    }
+
+    private Compression compressionOf(Catalog.Entry entry) throws IOException {
+        Compression entryCompression = compressions.get(entry.getCompression());
+        if (entryCompression == null) {
+            throw new IOException("Unsupported compression of " + entry.getName() + ": " + entry.getCompression());
+        }
+        return entryCompression;
+    }
+
+    /**
+     * Copies payload to a new file using positional reads, archive position is left untouched.
+     */
+    protected long readPayload(FileChannel archive, long offset, long size, Path target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long bytesRead = 0;
+        try (OutputStream ostream = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (bytesRead < size) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - bytesRead));
+                int n = archive.read(buffer, offset + bytesRead);
+                if (n == -1) {
+                    break;
+                }
+                ostream.write(buffer.array(), 0, n);
+                bytesRead += n;
+            }
+        }
+        return bytesRead;
+    }
+
+    @Override
+    public void list(String archiveName) throws IOException {
+        try (IndexedArchive archive = IndexedArchive.open(Paths.get(archiveName))) {
+            CatalogReader indexReader = archive.openIndex();
+            for (Catalog.Entry entry = indexReader.read(); entry != null; entry = indexReader.read()) {
+                System.out.println(entry.getName());
+            }
+        }
+    }
+
+    /**
+     * Checks payloads against their checksums, payloads are read concurrently on extract threads with positional
+     * reads. A payload shared by duplicates is read once. Entries without checksums are skipped, so are references,
+     * their payloads are checked by verifying the base archive.
+     *
+     * @return entries with corrupted payloads, empty for an intact archive
+     */
+    public List<Catalog.Entry> verify(String archiveName) throws IOException {
+        try (IndexedArchive archive = IndexedArchive.open(Paths.get(archiveName))) {
+            long start = System.nanoTime();
+            long entriesEnd = archive.getEntriesEnd();
+            Map<Long, List<Catalog.Entry>> payloads = new LinkedHashMap<>();
+            CatalogReader indexReader = archive.openIndex();
+            for (Catalog.Entry entry = indexReader.read(); entry != null; entry = indexReader.read()) {
+                if (entry.isFile() && !entry.isReference() && entry.hasChecksum()) {
+                    payloads.computeIfAbsent(entry.getOffset(), offset -> new ArrayList<>()).add(entry);
+                }
+            }
+            listener.cataloged(System.nanoTime() - start);
+            List<Catalog.Entry> stored = new ArrayList<>();
+            payloads.values().forEach(sharing -> stored.add(sharing.get(0)));
+            List<Catalog.Entry> corrupted = Collections.synchronizedList(new ArrayList<>());
+            forEach(stored, entry -> {
+                long entryStart = System.nanoTime();
+                boolean intact = entry.getOffset() >= 0 && entry.getOffset() + entry.getStoredSize() <= entriesEnd
+                        && checksum(archive.getChannel(), entry.getOffset(), entry.getStoredSize()) == entry.getChecksum();
+                if (!intact) {
+                    corrupted.addAll(payloads.get(entry.getOffset()));
+                }
+                processed(entry, entry.getStoredSize(), entryStart);
+            });
+            return corrupted;
+        }
+    }
+
+    private static long checksum(FileChannel archive, long offset, long size) throws IOException {
+        CRC32C checksum = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(size, 1 << 20));
+        long bytesRead = 0;
+        while (bytesRead < size) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), size - bytesRead));
+            int n = archive.read(buffer, offset + bytesRead);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            buffer.flip();
+            checksum.update(buffer);
+            bytesRead += n;
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Lists entries by their local headers, payloads are skipped.
+     */
+    @Override
+    public void list(ReadableByteChannel archive) throws IOException {
+        InputStream is = new BufferedInputStream(Channels.newInputStream(archive));
+        IndexedArchive.readHeader(is);
+        do {
+            for (EntryHeader header = EntryHeader.read(is); header != null; header = EntryHeader.read(is)) {
+                System.out.println(header.getEntry().getName());
+                skipPayload(is, header);
+            }
+        } while (nextSegment(is));
+    }
+
+    /**
+     * Skips the payload following the entry header, if the entry has one.
+     */
+    static void skipPayload(InputStream is, EntryHeader header) throws IOException {
+        Catalog.Entry entry = header.getEntry();
+        if (entry.isDirectory() || entry.isReference() || header.getDuplicateOf() != null) {
+            return;
+        }
+        if (entry.isCompressed()) {
+            CompressedPayload.skip(is, entry);
+        } else {
+            skipFully(is, entry.getSize());
+        }
+    }
+
+    /**
+     * Reads the index and trailer following the end of entries marker through, so a writer on the other end
+     * of a pipe is not cut off.
+     *
+     * @return whether entries of an appended segment follow
+     */
+    private static boolean nextSegment(InputStream is) throws IOException {
+        IndexedArchive.skipIndex(is);
+        is.mark(1);
+        if (is.read() == -1) {
+            return false;
+        }
+        is.reset();
+        return true;
+    }
+
+    private static long copy(InputStream is, long size, Path target) throws IOException {
+        byte[] buffer = new byte[8192];
+        long bytesRead = 0;
+        try (OutputStream ostream = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (bytesRead < size) {
+                int n = is.read(buffer, 0, (int) Math.min(buffer.length, size - bytesRead));
+                if (n == -1) {
+                    break;
+                }
+                ostream.write(buffer, 0, n);
+                bytesRead += n;
+            }
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Waits for the task rethrowing its failure as is.
+     */
+    static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + future);
+        }
+    }
+
+    static ByteBuffer readFully(FileChannel channel, int size, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    static byte[] readFully(InputStream is, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        int n = 0;
+        while (n < size) {
+            int bytesRead = is.read(bytes, n, size - n);
+            if (bytesRead == -1) {
+                throw new EOFException();
+            }
+            n += bytesRead;
+        }
+        return bytes;
+    }
+
+    static void skipFully(InputStream is, long size) throws IOException {
+        for (long n = 0; n < size; ) {
+            long skipped = is.skip(size - n);
+            if (skipped <= 0) {
+                if (is.read() == -1) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            n += skipped;
+        }
+    }
+
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
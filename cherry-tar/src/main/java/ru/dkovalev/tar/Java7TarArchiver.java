@@ -1,60 +1,138 @@
 package ru.dkovalev.tar;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class Java7TarArchiver implements TarArchiver {
 
+    private ArchiveListener listener = ArchiveListener.NONE;
+
+    @Override
+    public void setListener(ArchiveListener listener) {
+        this.listener = listener;
+    }
+
     @Override
     public void pack(String archiveName, List<String> fileNames) throws IOException {
-        Catalog catalog = createCatalog(fileNames);
-        FileOutputStream fileOutputStream = new FileOutputStream(archiveName);
-        try (ObjectOutputStream oos = new ObjectOutputStream(fileOutputStream)) {
-            oos.writeObject(catalog);
-            for (String entry : catalog.getFiles()) {
-                long size = Files.size(Paths.get(entry));
-                oos.writeLong(size);
-                oos.flush();
-                long bytesWritten = Files.copy(Paths.get(entry), fileOutputStream);
-                if (size != bytesWritten) {
-                    throw new RuntimeException(String.format("File size mismatch on write: expected=%d, actual=%d", size, bytesWritten));
-                }
-            }
+        try (FileOutputStream fileOutputStream = new FileOutputStream(archiveName)) {
+            pack(fileOutputStream, fileNames);
         }
     }
 
-    private Catalog createCatalog(List<String> fileNames) throws IOException {
-        Catalog catalog = new Catalog();
-        CatalogBuilder catalogBuilder = new CatalogBuilder(catalog);
-        for (String fileName : fileNames) {
-            Path filePath = Paths.get(fileName);
-            if (Files.isDirectory(filePath)) {
-                Files.walkFileTree(filePath, catalogBuilder);
-            } else {
-                catalog.addFile(fileName);
+    /**
+     * The format has the catalog at the head and no index, so it is streamed as is.
+     */
+    @Override
+    public void pack(WritableByteChannel archive, List<String> fileNames) throws IOException {
+        pack(Channels.newOutputStream(archive), fileNames);
+    }
+
+    private void pack(OutputStream os, List<String> fileNames) throws IOException {
+        long start = System.nanoTime();
+        Catalog catalog = CatalogBuilder.createCatalog(fileNames);
+        listener.cataloged(System.nanoTime() - start);
+        ObjectOutputStream oos = new ObjectOutputStream(os);
+        oos.writeObject(catalog);
+        for (Catalog.Entry entry : catalog.getEntries()) {
+            if (entry.isDirectory()) {
+                listener.entryProcessed(entry, 0, 0);
+                continue;
             }
+            long entryStart = System.nanoTime();
+            long size = Files.size(Paths.get(entry.getName()));
+            oos.writeLong(size);
+            oos.flush();
+            long bytesWritten = Files.copy(Paths.get(entry.getName()), os);
+            if (size != bytesWritten) {
+                throw new RuntimeException(String.format("File size mismatch on write: expected=%d, actual=%d", size, bytesWritten));
+            }
+            listener.entryProcessed(entry, bytesWritten, System.nanoTime() - entryStart);
         }
-        return catalog;
+        oos.flush();
     }
 
     @Override
     public void unpack(String archiveName, String directory) throws IOException {
+        try (FileInputStream fileInputStream = new FileInputStream(archiveName)) {
+            unpack(fileInputStream, directory);
+        }
+    }
+
+    @Override
+    public void unpack(ReadableByteChannel archive, String directory) throws IOException {
+        unpack(Channels.newInputStream(archive), directory);
+    }
+
+    private void unpack(InputStream is, String directory) throws IOException {
+        try {
+            long start = System.nanoTime();
+            ObjectInputStream ois = new ObjectInputStream(is);
+            Catalog catalog = (Catalog) ois.readObject();
+            listener.cataloged(System.nanoTime() - start);
+            for (Catalog.Entry entry : catalog.getEntries()) {
+                long entryStart = System.nanoTime();
+                long bytesRead = 0;
+                if (entry.isDirectory()) {
+                    Files.createDirectory(IndexedTarArchiver.target(Paths.get(directory), entry.getName()));
+                } else {
+                    long size = ois.readLong();
+                    bytesRead = copyFile(is, IndexedTarArchiver.target(Paths.get(directory), entry.getName()), size);
+                    if (size != bytesRead) {
+                        throw new RuntimeException(String.format("File size mismatch on read: expected=%d, actual=%d", size, bytesRead));
+                    }
+                }
+                listener.entryProcessed(entry, bytesRead, System.nanoTime() - entryStart);
+            }
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Payloads are stored back-to-back without an index, so skipped entries still have to be read through.
+     */
+    @Override
+    public void unpack(String archiveName, String directory, List<String> patterns) throws IOException {
         FileInputStream fileInputStream = new FileInputStream(archiveName);
         try (ObjectInputStream ois = new ObjectInputStream(fileInputStream)) {
+            long start = System.nanoTime();
             Catalog catalog = (Catalog) ois.readObject();
+            Set<Catalog.Entry> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+            selected.addAll(catalog.select(patterns));
+            listener.cataloged(System.nanoTime() - start);
             for (Catalog.Entry entry : catalog.getEntries()) {
+                long entryStart = System.nanoTime();
+                Path target = IndexedTarArchiver.target(Paths.get(directory), entry.getName());
                 if (entry.isDirectory()) {
-                    Files.createDirectory(Paths.get(directory, entry.getName()));
+                    if (selected.contains(entry)) {
+                        Files.createDirectories(target);
+                        listener.entryProcessed(entry, 0, System.nanoTime() - entryStart);
+                    }
                 } else {
                     long size = ois.readLong();
-                    long bytesRead = copyFile(fileInputStream, Paths.get(directory, entry.getName()), size);
+                    long bytesRead;
+                    if (selected.contains(entry)) {
+                        Files.createDirectories(target.getParent());
+                        bytesRead = copyFile(fileInputStream, target, size);
+                    } else {
+                        bytesRead = skipFile(fileInputStream, size);
+                    }
                     if (size != bytesRead) {
                         throw new RuntimeException(String.format("File size mismatch on read: expected=%d, actual=%d", size, bytesRead));
                     }
+                    if (selected.contains(entry)) {
+                        listener.entryProcessed(entry, bytesRead, System.nanoTime() - entryStart);
+                    }
                 }
             }
         } catch (ClassNotFoundException e) {
@@ -67,7 +145,7 @@ public class Java7TarArchiver implements TarArchiver {
         long bytesRead = 0;
         try (OutputStream ostream = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
             while (bytesRead < size) {
-                int bytesToRead = (int) Math.min(buffer.length, size);
+                int bytesToRead = (int) Math.min(buffer.length, size - bytesRead);
                 int n = is.read(buffer, 0, bytesToRead);
                 if (n == -1) {
                     break;
@@ -79,11 +157,34 @@ public class Java7TarArchiver implements TarArchiver {
         return bytesRead;
     }
 
+    private long skipFile(InputStream is, long size) throws IOException {
+        long bytesSkipped = 0;
+        while (bytesSkipped < size) {
+            long n = is.skip(size - bytesSkipped);
+            if (n <= 0) {
+                break;
+            }
+            bytesSkipped += n;
+        }
+        return bytesSkipped;
+    }
+
     @Override
     public void list(String archiveName) throws IOException {
+        try (FileInputStream fileInputStream = new FileInputStream(archiveName)) {
+            list(fileInputStream);
+        }
+    }
+
+    @Override
+    public void list(ReadableByteChannel archive) throws IOException {
+        list(Channels.newInputStream(archive));
+    }
+
+    private void list(InputStream is) throws IOException {
         Catalog catalog;
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(archiveName))) {
-            catalog = (Catalog) ois.readObject();
+        try {
+            catalog = (Catalog) new ObjectInputStream(is).readObject();
         } catch (ClassNotFoundException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,71 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Same archive format as {@link IndexedTarArchiver}, payloads are moved channel to channel
+ * with {@link FileChannel#transferTo(long, long, WritableByteChannel) transferTo},
+ * so the kernel can copy them without passing through the java heap (sendfile, copy_file_range).
+ * <p/>
+ * With checksums enabled, the default, payloads can not go through transferTo: the kernel would copy bytes
+ * the checksum never sees. They are checksummed as they are written instead, so the checksum covers exactly
+ * the stored bytes in a single pass. Files larger than {@link ChecksumChannel#BUFFER_SIZE} are mapped,
+ * checksummed over the mapped pages and written with a single kernel copy, smaller ones are copied through
+ * a direct buffer reused for the whole archive, where mapping would cost more than the copy it saves.
+ * Unpack and pack without checksums use transferTo.
+ */
+public class NioTarArchiver extends IndexedTarArchiver {
+
+    private static final long MAPPING_SIZE = 1 << 30;
+
+    @Override
+    protected long writePayload(Path file, WritableByteChannel archive) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = source.size();
+            if (archive instanceof ChecksumChannel) {
+                return size > ChecksumChannel.BUFFER_SIZE
+                        ? writeMapped(source, size, archive)
+                        : ((ChecksumChannel) archive).transferFrom(source, size);
+            }
+            return transfer(source, 0, size, archive);
+        }
+    }
+
+    private static long writeMapped(FileChannel source, long size, WritableByteChannel target) throws IOException {
+        long bytesWritten = 0;
+        while (bytesWritten < size) {
+            ByteBuffer mapping = source.map(FileChannel.MapMode.READ_ONLY, bytesWritten, Math.min(MAPPING_SIZE, size - bytesWritten));
+            bytesWritten += mapping.remaining();
+            writeFully(target, mapping);
+        }
+        return bytesWritten;
+    }
+
+    /**
+     * Uses positional {@code archive.transferTo} rather than {@code target.transferFrom(archive, ...)},
+     * the latter reads from the shared archive position.
+     */
+    @Override
+    protected long readPayload(FileChannel archive, long offset, long size, Path target) throws IOException {
+        try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            return transfer(archive, offset, size, targetChannel);
+        }
+    }
+
+    private static long transfer(FileChannel source, long offset, long size, WritableByteChannel target) throws IOException {
+        long bytesTransferred = 0;
+        while (bytesTransferred < size) {
+            long n = source.transferTo(offset + bytesTransferred, size - bytesTransferred, target);
+            if (n <= 0) {
+                break;
+            }
+            bytesTransferred += n;
+        }
+        return bytesTransferred;
+    }
+}
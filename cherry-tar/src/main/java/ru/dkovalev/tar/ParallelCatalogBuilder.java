@@ -0,0 +1,124 @@
+package ru.dkovalev.tar;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds a catalog listing directories concurrently, a fork-join task per directory.
+ * Pays off on deep and wide trees where listing latency dominates, e.g. on network file systems.
+ * <p/>
+ * Unlike {@link CatalogBuilder} the order does not depend on the file system:
+ * entries are in pre-order with siblings sorted by name.
+ */
+public class ParallelCatalogBuilder {
+
+    private final int parallelism;
+
+    public ParallelCatalogBuilder(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public Catalog createCatalog(List<String> fileNames) throws IOException {
+        Catalog catalog = new Catalog();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (String fileName : fileNames) {
+                WalkTask task = new WalkTask(Paths.get(fileName), null);
+                pool.invoke(task);
+                task.addTo(catalog);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return catalog;
+    }
+
+    private static Catalog.Entry fileEntry(Path file, BasicFileAttributes attrs) throws IOException {
+        // links are archived with the content they point to, same as CatalogBuilder
+        long size = attrs.isRegularFile() ? attrs.size() : Files.size(file);
+        return Catalog.Entry.file(file.toString(), size, attrs.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Fills a slot per child rather than returning a list, so entries of a subtree are not copied into
+     * every ancestor on the way up, the tree is flattened once when done.
+     */
+    private static class WalkTask extends RecursiveAction {
+
+        private final Path path;
+        private final BasicFileAttributes attrs;
+        /** Entry of the path, then entries of files and tasks of subdirectories in name order. */
+        private Object[] slots;
+
+        WalkTask(Path path, BasicFileAttributes attrs) {
+            this.path = path;
+            this.attrs = attrs;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                BasicFileAttributes pathAttrs = attrs != null ? attrs : readAttributes(path);
+                if (!pathAttrs.isDirectory()) {
+                    slots = new Object[]{fileEntry(path, pathAttrs)};
+                    return;
+                }
+                List<Path> children = new ArrayList<>();
+                try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(path)) {
+                    directoryStream.forEach(children::add);
+                }
+                children.sort(Comparator.comparing(child -> child.getFileName().toString()));
+
+                // fork subdirectories first, files are stat-ed meanwhile
+                Object[] directorySlots = new Object[children.size() + 1];
+                directorySlots[0] = new Catalog.Entry(path.toString(), true);
+                for (int i = 0; i < children.size(); i++) {
+                    Path child = children.get(i);
+                    BasicFileAttributes childAttrs = readAttributes(child);
+                    directorySlots[i + 1] = childAttrs.isDirectory() ? new WalkTask(child, childAttrs).fork() : fileEntry(child, childAttrs);
+                }
+                for (Object slot : directorySlots) {
+                    if (slot instanceof WalkTask) {
+                        ((WalkTask) slot).join();
+                    }
+                }
+                slots = directorySlots;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Adds entries of the walked tree in pre-order.
+         */
+        void addTo(Catalog catalog) {
+            for (Object slot : slots) {
+                if (slot instanceof WalkTask) {
+                    ((WalkTask) slot).addTo(catalog);
+                } else {
+                    catalog.addEntry((Catalog.Entry) slot);
+                }
+            }
+        }
+
+        private static BasicFileAttributes readAttributes(Path path) throws IOException {
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+    }
+}
@@ -1,68 +1,292 @@
 package ru.dkovalev.tar;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * Usages:
- * SimpleTar -c ARCHIVE_NAME FILE+
+ * SimpleTar -c [--base BASE_ARCHIVE_NAME] ARCHIVE_NAME FILE+
  *     # Create archive with given name for FILEs
+ *     # With base archive store only files new or changed since it, the base is needed to extract.
+ *     # ARCHIVE_NAME "-" writes the archive to stdout.
+ *
+ * SimpleTar -r ARCHIVE_NAME FILE+
+ *      # Append FILEs to an existing archive, payloads already in it are not rewritten.
+ *      # Entries of the same name are replaced.
+ *
+ * SimpleTar -v ARCHIVE_NAME
+ *      # Verify payload checksums, corrupted entries are printed and fail the command.
  *
  * SimpleTar -t ARCHIVE_NAME
- *      # List all files in archive
+ *      # List all files in archive, "-" reads it from stdin.
  *
- * SimpleTar -x ARCHIVE_NAME [DIR]
+ * SimpleTar -x ARCHIVE_NAME [DIR [PATTERN+]]
  *      # Extract all files from archive to the current dir or to the given dir.
+ *      # With PATTERNs extract only entries matching any of the globs, e.g. "conf/*.properties".
+ *      # ARCHIVE_NAME "-" reads the archive from stdin, PATTERNs are not supported then.
+ *
+ * System properties:
+ * simpletar.archiver=nio|stream
+ *      # Payload copying implementation, FileChannel transfers by default.
+ * simpletar.threads=N
+ *      # Number of threads writing files on extract and checking payloads on verify, 1 by default.
+ * simpletar.walkThreads=N
+ *      # Number of threads listing directories on create, 1 by default.
+ * simpletar.compression=none|deflate
+ *      # Compression of file payloads on create, none by default.
+ * simpletar.compressionThreads=N
+ *      # Number of threads compressing and decompressing payload blocks, the number of processors by default.
+ * simpletar.digests=true|false
+ *      # Record content digests on create and compare them with the base archive, false by default.
+ * simpletar.dedup=true|false
+ *      # Store identical files once on create, false by default.
+ * simpletar.checksums=true|false
+ *      # Record CRC32C of payloads on create, true by default.
+ * simpletar.links=true|false
+ *      # Hard link files sharing content on extract instead of copying, false by default.
+ * simpletar.progress=true|false
+ *      # Print entries, bytes and throughput to stderr every second and a summary with catalog time
+ *      # and entry latencies at the end, false by default.
  */
 public class SimpleTar {
 
-    private TarArchiver archiver = new Java7TarArchiver();
+    /**
+     * {@link ObjectOutputStream} header written at the head of {@link Java7TarArchiver} archives.
+     */
+    private static final short JAVA7_ARCHIVE_MAGIC = (short) 0xACED;
+
+    private static final String STANDARD_STREAM = "-";
+
+    private final TarArchiver archiver;
+    private ArchiveListener listener = ArchiveListener.NONE;
+
+    public SimpleTar() {
+        this(new NioTarArchiver());
+    }
+
+    public SimpleTar(TarArchiver archiver) {
+        this.archiver = archiver;
+    }
 
     public static void main(String[] args) throws IOException {
-        SimpleTar simpleTar = new SimpleTar();
-        String action = args[0];
-        switch (action) {
-            case "-c":
-                simpleTar.create(args);
-                break;
-            case "-x":
-                simpleTar.extract(args);
-                break;
-            case "-t":
-                simpleTar.list(args);
-                break;
+        IndexedTarArchiver archiver = createArchiver(System.getProperty("simpletar.archiver", "nio"));
+        archiver.setExtractThreads(Integer.getInteger("simpletar.threads", 1));
+        archiver.setWalkThreads(Integer.getInteger("simpletar.walkThreads", 1));
+        archiver.setCompression(createCompression(System.getProperty("simpletar.compression", "none")));
+        archiver.setCompressionThreads(Integer.getInteger("simpletar.compressionThreads", Runtime.getRuntime().availableProcessors()));
+        archiver.setContentDigests(Boolean.getBoolean("simpletar.digests"));
+        archiver.setDeduplicate(Boolean.getBoolean("simpletar.dedup"));
+        archiver.setChecksums(Boolean.parseBoolean(System.getProperty("simpletar.checksums", "true")));
+        archiver.setLinkDuplicates(Boolean.getBoolean("simpletar.links"));
+        SimpleTar simpleTar = new SimpleTar(archiver);
+        ArchiveMetrics metrics = null;
+        ScheduledExecutorService progress = null;
+        if (Boolean.getBoolean("simpletar.progress")) {
+            metrics = new ArchiveMetrics();
+            simpleTar.setListener(metrics);
+            progress = printProgress(metrics);
+        }
+        try {
+            String action = args[0];
+            switch (action) {
+                case "-c":
+                    simpleTar.create(args);
+                    break;
+                case "-r":
+                    simpleTar.append(args);
+                    break;
+                case "-x":
+                    simpleTar.extract(args);
+                    break;
+                case "-v":
+                    simpleTar.verify(args);
+                    break;
+                case "-t":
+                    simpleTar.list(args);
+                    break;
+            }
+        } finally {
+            if (progress != null) {
+                progress.shutdownNow();
+                System.err.println("\r" + metrics);
+            }
+        }
+    }
+
+    /**
+     * Overwrites a progress line on stderr every second, stdout may carry the archive.
+     * Throughput is the rate since the previous line.
+     */
+    private static ScheduledExecutorService printProgress(ArchiveMetrics metrics) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simpletar-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] last = {0, System.nanoTime()};
+        executor.scheduleAtFixedRate(() -> {
+            long bytes = metrics.getBytes();
+            long now = System.nanoTime();
+            double throughput = (bytes - last[0]) * (double) TimeUnit.SECONDS.toNanos(1) / (now - last[1]);
+            last[0] = bytes;
+            last[1] = now;
+            System.err.printf("\r%d entries, %.1f MB, %.1f MB/s", metrics.getEntries(), bytes / 1e6, throughput / 1e6);
+        }, 1, 1, TimeUnit.SECONDS);
+        return executor;
+    }
+
+    /**
+     * Reports progress of operations, also on archives of the legacy format.
+     */
+    public void setListener(ArchiveListener listener) {
+        this.listener = listener;
+        archiver.setListener(listener);
+    }
+
+    private static IndexedTarArchiver createArchiver(String name) {
+        switch (name) {
+            case "nio":
+                return new NioTarArchiver();
+            case "stream":
+                return new IndexedTarArchiver();
+            default:
+                throw new IllegalArgumentException("Unknown archiver: " + name);
+        }
+    }
+
+    private static Compression createCompression(String name) {
+        switch (name) {
+            case "none":
+                return null;
+            case "deflate":
+                return new DeflateCompression();
+            default:
+                throw new IllegalArgumentException("Unknown compression: " + name);
         }
     }
 
     public void create(String[] args) throws IOException {
-        if (args.length < 3) {
+        String baseArchiveName = null;
+        int i = 1;
+        if (args.length > 2 && args[1].equals("--base")) {
+            baseArchiveName = args[2];
+            i = 3;
+        }
+        if (args.length < i + 2) {
             throw new IllegalArgumentException();
         }
-        String archiveName = args[1];
+        String archiveName = args[i];
+        List<String> fileNames = Arrays.stream(args, i + 1, args.length).collect(Collectors.toList());
+        IndexedTarArchiver incremental = baseArchiveName != null
+                ? indexed(archiver, "Incremental archives are not supported by " + archiver.getClass().getSimpleName())
+                : null;
+        if (archiveName.equals(STANDARD_STREAM)) {
+            try (WritableByteChannel stdout = Channels.newChannel(System.out)) {
+                if (incremental != null) {
+                    incremental.pack(stdout, fileNames, baseArchiveName);
+                } else {
+                    archiver.pack(stdout, fileNames);
+                }
+            }
+        } else if (incremental != null) {
+            incremental.pack(archiveName, fileNames, baseArchiveName);
+        } else {
+            archiver.pack(archiveName, fileNames);
+        }
+    }
+
+    public void append(String[] args) throws IOException {
+        if (args.length < 3 || args[1].equals(STANDARD_STREAM)) {
+            throw new IllegalArgumentException();
+        }
+        IndexedTarArchiver indexed = indexed(archiverFor(args[1]), "Appending to an archive of the legacy format is not supported: " + args[1]);
         List<String> fileNames = Arrays.stream(args, 2, args.length).collect(Collectors.toList());
-        archiver.pack(archiveName, fileNames);
+        indexed.append(args[1], fileNames);
     }
 
     public void extract(String[] args) throws IOException {
-        if (args.length < 2 || args.length > 3) {
+        if (args.length < 2) {
             throw new IllegalArgumentException();
         }
         String archiveName = args[1];
         String directory;
-        if (args.length == 3) {
+        if (args.length >= 3) {
             directory = args[2];
             Files.createDirectory(Paths.get(directory));
         } else {
             directory = "./";
         }
-        archiver.unpack(archiveName, directory);
+        if (archiveName.equals(STANDARD_STREAM)) {
+            if (args.length > 3) {
+                throw new IllegalArgumentException("Patterns are not supported for an archive read from stdin");
+            }
+            try (ReadableByteChannel stdin = Channels.newChannel(System.in)) {
+                archiver.unpack(stdin, directory);
+            }
+        } else if (args.length > 3) {
+            List<String> patterns = Arrays.stream(args, 3, args.length).collect(Collectors.toList());
+            archiverFor(archiveName).unpack(archiveName, directory, patterns);
+        } else {
+            archiverFor(archiveName).unpack(archiveName, directory);
+        }
     }
 
 
+    public void verify(String[] args) throws IOException {
+        IndexedTarArchiver indexed = indexed(archiverFor(args[1]), "Archives of the legacy format have no checksums to verify: " + args[1]);
+        List<Catalog.Entry> corrupted = indexed.verify(args[1]);
+        for (Catalog.Entry entry : corrupted) {
+            System.out.println(entry.getName());
+        }
+        if (!corrupted.isEmpty()) {
+            throw new IOException(String.format("Corrupted entries in %s: %d", args[1], corrupted.size()));
+        }
+    }
+
     public void list(String[] args) throws IOException {
-        archiver.list(args[1]);
+        if (args[1].equals(STANDARD_STREAM)) {
+            try (ReadableByteChannel stdin = Channels.newChannel(System.in)) {
+                archiver.list(stdin);
+            }
+        } else {
+            archiverFor(args[1]).list(args[1]);
+        }
+    }
+
+    /**
+     * Incremental archives, append and verify are features of the indexed format only.
+     *
+     * @throws IllegalArgumentException with the message if the archiver is of another format
+     */
+    private static IndexedTarArchiver indexed(TarArchiver archiver, String message) {
+        if (!(archiver instanceof IndexedTarArchiver)) {
+            throw new IllegalArgumentException(message);
+        }
+        return (IndexedTarArchiver) archiver;
+    }
+
+    /**
+     * Archives created before the indexed format are still readable, except from stdin.
+     */
+    private TarArchiver archiverFor(String archiveName) throws IOException {
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(archiveName))) {
+            if (dis.readShort() == JAVA7_ARCHIVE_MAGIC) {
+                Java7TarArchiver java7TarArchiver = new Java7TarArchiver();
+                java7TarArchiver.setListener(listener);
+                return java7TarArchiver;
+            }
+        } catch (EOFException e) {
+            // too short for any known format, let the archiver report it
+        }
+        return archiver;
     }
 }
@@ -1,11 +1,36 @@
 package ru.dkovalev.tar;
 
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 public interface TarArchiver {
 
     void pack(String archiveName, List<String> fileNames) throws IOException;
+
+    /**
+     * Writes the archive front to back, e.g. to a pipe or a socket. The channel is left open.
+     */
+    void pack(WritableByteChannel archive, List<String> fileNames) throws IOException;
+
     void unpack(String archiveName, String directory) throws IOException;
+
+    /**
+     * Reads the archive front to back, e.g. from a pipe or a socket. The channel is left open.
+     */
+    void unpack(ReadableByteChannel archive, String directory) throws IOException;
+
+    /**
+     * Extracts only entries matching any of the given glob patterns, see {@link Catalog#select(List)}.
+     */
+    void unpack(String archiveName, String directory, List<String> patterns) throws IOException;
+
     void list(String archiveName) throws IOException;
+    void list(ReadableByteChannel archive) throws IOException;
+
+    /**
+     * Reports progress of subsequent operations, {@link ArchiveListener#NONE} by default.
+     */
+    void setListener(ArchiveListener listener);
 }
@@ -0,0 +1,80 @@
+package ru.dkovalev.tar
+
+import spock.lang.Specification
+
+import java.nio.file.FileSystem
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.BasicFileAttributes
+
+class ArchiveFileSystemSpec extends Specification {
+
+    Path archive = Files.createTempFile("fs-spec", ".tar")
+
+    def cleanup() {
+        Files.delete(archive)
+    }
+
+    def "directory entry replaces a file entry of the same name"() {
+        given:
+        def fs = mount([
+                file("x"),
+                new Catalog.Entry("x", true),
+                file("x/y")])
+
+        expect:
+        Files.readAttributes(fs.getPath("/x"), BasicFileAttributes).directory
+        Files.newDirectoryStream(fs.getPath("/x")).withCloseable { it.collect { it.toString() } } == ["/x/y"]
+        Files.readAllBytes(fs.getPath("/x/y")).length == 0
+
+        cleanup:
+        fs?.close()
+    }
+
+    def "file entry standing in for a parent becomes a directory"() {
+        given: "a file appended under the name of an earlier file"
+        def fs = mount([file("x"), file("x/y")])
+
+        expect:
+        Files.isDirectory(fs.getPath("/x"))
+        Files.newDirectoryStream(fs.getPath("/x")).withCloseable { it.collect { it.toString() } } == ["/x/y"]
+        Files.newDirectoryStream(fs.getPath("/")).withCloseable { it.collect { it.toString() } } == ["/x"]
+
+        cleanup:
+        fs?.close()
+    }
+
+    def "directory entry is kept over a later file entry of the same name"() {
+        given:
+        def fs = mount([new Catalog.Entry("x", true), file("x/y"), file("x")])
+
+        expect:
+        Files.isDirectory(fs.getPath("/x"))
+        Files.newDirectoryStream(fs.getPath("/x")).withCloseable { it.collect { it.toString() } } == ["/x/y"]
+
+        cleanup:
+        fs?.close()
+    }
+
+    private static Catalog.Entry file(String name) {
+        Catalog.Entry.file(name, 0, 1000).withPayload(0, 0, Compression.NONE)
+    }
+
+    /**
+     * Writes an archive with the given index and no payloads.
+     */
+    private FileSystem mount(List<Catalog.Entry> entries) {
+        def bytes = new ByteArrayOutputStream()
+        def header = IndexedArchive.header("")
+        bytes.write(header.array(), 0, header.remaining())
+        bytes.write(CatalogWriter.END)
+        long indexOffset = bytes.size()
+        def writer = new CatalogWriter(bytes)
+        entries.each { writer.write(it) }
+        writer.finish()
+        def trailer = IndexedArchive.trailer(indexOffset)
+        bytes.write(trailer.array(), 0, trailer.remaining())
+        Files.write(archive, bytes.toByteArray())
+        new ArchiveFileSystemProvider().newFileSystem(archive, [:])
+    }
+}
@@ -0,0 +1,199 @@
+package ru.dkovalev.tar
+
+import spock.lang.Unroll
+
+import java.nio.file.Files
+
+class ArchiveMetricsSpec extends ArchiveSpecification {
+
+    def "reports every entry of pack, unpack and verify"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.deduplicate = true
+        archiver.extractThreads = 4
+        def files = sourceFiles()
+
+        when:
+        def packed = record(archiver) { archiver.pack(archive, [src.toString()]) }
+
+        then: "directories are reported with 0 bytes"
+        packed.cataloged == 1
+        packed.bytes.keySet() == entryNames()
+        packed.bytes.findAll { it.value > 0 } == files
+
+        when:
+        def unpacked = record(archiver) { archiver.unpack(archive, out.toString()) }
+
+        then:
+        unpacked.cataloged == 1
+        unpacked.bytes == packed.bytes
+
+        when:
+        def verified = record(archiver) { archiver.verify(archive) }
+
+        then: "a payload shared by duplicates is checked once"
+        verified.cataloged == 1
+        verified.bytes.keySet().size() == files.size()
+        verified.bytes.values().sum() == files.values().sum() - Files.size(src.resolve("a/big.bin"))
+    }
+
+    def "reports references of an incremental pack with 0 bytes"() {
+        given:
+        def archiver = new NioTarArchiver()
+        def base = work.resolve("${UUID.randomUUID()}-base.tar").toString()
+        archiver.pack(base, [src.toString()])
+
+        when:
+        def packed = record(archiver) { archiver.pack(archive, [src.toString()], base) }
+
+        then:
+        packed.bytes.keySet() == entryNames()
+        packed.bytes.values().every { it == 0 }
+
+        when: "unpack extracts the referenced content"
+        def unpacked = record(archiver) { archiver.unpack(archive, out.toString()) }
+
+        then:
+        unpacked.bytes.findAll { it.value > 0 } == sourceFiles()
+    }
+
+    def "sums entries and bytes over threads"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.extractThreads = 4
+        archiver.pack(archive, [src.toString()])
+        def metrics = new ArchiveMetrics()
+        archiver.listener = metrics
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        metrics.entries == entryNames().size()
+        metrics.bytes == sourceFiles().values().sum()
+        metrics.latencyHistogram.sum() == metrics.entries
+        metrics.slowestEntry in entryNames()
+        metrics.slowestNanos > 0
+    }
+
+    @Unroll
+    def "counts a latency of #nanos ns in bucket #bucket"() {
+        given:
+        def metrics = new ArchiveMetrics()
+
+        when:
+        metrics.entryProcessed(file("a"), 0, nanos)
+
+        then:
+        metrics.latencyHistogram[bucket] == 1
+        metrics.latencyHistogram.sum() == 1
+        metrics.getLatencyQuantile(0.5) == upperBound
+
+        where:
+        nanos          | bucket | upperBound
+        -5             | 0      | 0
+        0              | 0      | 0
+        1              | 1      | 2
+        2              | 2      | 4
+        3              | 2      | 4
+        1000           | 10     | 1024
+        1024           | 11     | 2048
+        Long.MAX_VALUE | 63     | Long.MAX_VALUE
+    }
+
+    def "takes quantiles from the bucket holding the rank"() {
+        given: "latencies in buckets 1, 4, 4, 4 and 11"
+        def metrics = new ArchiveMetrics()
+        [1, 8, 9, 15, 1500].each { metrics.entryProcessed(file("a"), 0, it) }
+
+        expect:
+        metrics.getLatencyQuantile(0) == 2
+        metrics.getLatencyQuantile(0.2) == 2
+        metrics.getLatencyQuantile(0.21) == 16
+        metrics.getLatencyQuantile(0.8) == 16
+        metrics.getLatencyQuantile(0.81) == 2048
+        metrics.getLatencyQuantile(1) == 2048
+    }
+
+    def "reports nothing without entries"() {
+        given:
+        def metrics = new ArchiveMetrics()
+
+        expect:
+        metrics.entries == 0
+        metrics.getLatencyQuantile(0) == 0
+        metrics.getLatencyQuantile(1) == 0
+        metrics.slowestNanos == 0
+        metrics.slowestEntry == null
+        metrics.toString().startsWith("0 entries")
+    }
+
+    def "keeps the first of the slowest entries"() {
+        given:
+        def metrics = new ArchiveMetrics()
+
+        when:
+        metrics.entryProcessed(file("fast"), 0, 10)
+        metrics.entryProcessed(file("slow"), 0, 1000)
+        metrics.entryProcessed(file("as slow"), 0, 1000)
+
+        then:
+        metrics.slowestEntry == "slow"
+        metrics.slowestNanos == 1000
+    }
+
+    @Unroll
+    def "rejects quantile #quantile"() {
+        when:
+        new ArchiveMetrics().getLatencyQuantile(quantile)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        quantile << [-0.1, 1.1]
+    }
+
+    private Set<String> entryNames() {
+        tree(src).keySet().collect { src.resolve(it).toString() } + src.toString() as Set
+    }
+
+    /**
+     * @return sizes of non-empty files by entry name
+     */
+    private Map<String, Long> sourceFiles() {
+        tree(src).findAll { it.value != null }.collectEntries { [(src.resolve(it.key).toString()): Files.size(src.resolve(it.key))] }
+                .findAll { it.value > 0 }
+    }
+
+    private static Recording record(IndexedTarArchiver archiver, Closure operation) {
+        def recording = new Recording()
+        archiver.listener = recording
+        operation()
+        recording
+    }
+
+    private static Catalog.Entry file(String name) {
+        Catalog.Entry.file(name, 0, 1000)
+    }
+
+    /**
+     * Bytes reported by entry name, entries are reported from extract threads.
+     */
+    static class Recording implements ArchiveListener {
+
+        int cataloged
+        Map<String, Long> bytes = [:]
+
+        @Override
+        synchronized void cataloged(long nanos) {
+            cataloged++
+        }
+
+        @Override
+        synchronized void entryProcessed(Catalog.Entry entry, long bytes, long nanos) {
+            assert !this.bytes.containsKey(entry.name)
+            this.bytes[entry.name] = bytes
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.dkovalev.tar
+
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.security.MessageDigest
+
+/**
+ * Source tree and scratch files of archive specs. Archivers store names as given, so files are packed
+ * by paths relative to the working directory.
+ */
+abstract class ArchiveSpecification extends Specification {
+
+    @Shared
+    Path work = Files.createTempDirectory(Files.createDirectories(Paths.get("target")), "tar-spec")
+    /** Read-only tree: a file of several compression blocks, its copy, small, empty and compressible files. */
+    @Shared
+    Path src = work.resolve("src")
+
+    Path out = Files.createTempDirectory(work, "out")
+    String archive = work.resolve("${UUID.randomUUID()}.tar").toString()
+
+    def setupSpec() {
+        def random = new Random(42)
+        byte[] big = new byte[CompressedPayload.BLOCK_SIZE * 2 + 1000]
+        random.nextBytes(big)
+        Files.createDirectories(src.resolve("a/b"))
+        Files.createDirectories(src.resolve("c"))
+        Files.createDirectories(src.resolve("empty-dir"))
+        Files.write(src.resolve("a/big.bin"), big)
+        Files.write(src.resolve("a/b/x.txt"), "hello".bytes)
+        Files.write(src.resolve("c/y.txt"), "world".bytes)
+        Files.write(src.resolve("c/log.txt"), (1..100_000).join("\n").bytes)
+        Files.write(src.resolve("c/dup.bin"), big)
+        Files.write(src.resolve("empty"), new byte[0])
+    }
+
+    def cleanupSpec() {
+        work.toFile().deleteDir()
+    }
+
+    /**
+     * @return index entry of a file of the source tree
+     */
+    Catalog.Entry entry(String archiveName, String file) {
+        IndexedArchive.open(Paths.get(archiveName)).withCloseable { it.getEntry(src.resolve(file).toString()) }
+    }
+
+    /**
+     * @return SHA-256 of files and null for directories, by path relative to the root
+     */
+    static Map<String, String> tree(Path root) {
+        def tree = [:]
+        root.toFile().eachFileRecurse { file ->
+            tree[root.relativize(file.toPath()).toString()] = file.directory ? null : sha256(file.bytes)
+        }
+        tree
+    }
+
+    static String sha256(byte[] bytes) {
+        MessageDigest.getInstance("SHA-256").digest(bytes).encodeHex().toString()
+    }
+
+    static void flipByte(Path file, long position) {
+        new RandomAccessFile(file.toFile(), "rw").withCloseable {
+            it.seek(position)
+            int b = it.read()
+            it.seek(position)
+            it.write(b ^ 0xFF)
+        }
+    }
+}
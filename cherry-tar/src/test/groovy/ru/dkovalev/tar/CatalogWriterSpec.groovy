@@ -0,0 +1,144 @@
+package ru.dkovalev.tar
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class CatalogWriterSpec extends Specification {
+
+    def "entries are read back as written"() {
+        given:
+        def entries = [
+                new Catalog.Entry("dir", true),
+                Catalog.Entry.file("dir/a.txt", 5, 1000).withPayload(100, 5, Compression.NONE),
+                Catalog.Entry.file("dir/b.bin", 3_000_000, -1).withPayload(120, 40_000, 1).withChecksum(0xCAFEBABEL),
+                Catalog.Entry.file("dir/copy.txt", 5, 2000).withPayload(100, 5, Compression.NONE),
+                Catalog.Entry.file("dir/old.txt", 7, 3000).asReference().withDigest([1, 2, 3] as byte[]),
+                Catalog.Entry.file("dir/😀.txt", 1, 4000).withPayload(50_000, 1, Compression.NONE),
+                Catalog.Entry.file("dir/😁.txt", 1, 4000).withPayload(60_000, 1, Compression.NONE)]
+
+        when:
+        def bytes = new ByteArrayOutputStream()
+        def writer = new CatalogWriter(bytes)
+        entries.each { writer.write(it) }
+        writer.finish()
+        def read = new CatalogReader(new ByteArrayInputStream(bytes.toByteArray())).readCatalog().entries
+
+        then:
+        read.collect { fields(it) } == entries.collect { fields(it) }
+    }
+
+    def "encodes offsets of back-to-back payloads as a single zero byte"() {
+        given: "each payload right behind its entry header"
+        def first = Catalog.Entry.file("a.txt", 5, 1000)
+        first = first.withPayload(EntryHeader.storedLength(first), 5, Compression.NONE)
+        def second = Catalog.Entry.file("b.txt", 7, 1000)
+        second = second.withPayload(first.offset + first.storedSize + EntryHeader.storedLength(second), 7, Compression.NONE)
+
+        when:
+        def bytes = new ByteArrayOutputStream()
+        def writer = new CatalogWriter(bytes)
+        writer.write(first)
+        writer.write(second)
+        writer.finish()
+
+        then: "flags, shared, length, name, size, two byte last modified, offset delta"
+        def encoded = bytes.toByteArray()
+        def entryLength = 1 + 1 + 1 + 5 + 1 + 2 + 1
+        encoded.length == 2 * entryLength + 1
+        encoded[entryLength - 1] == 0
+        encoded[2 * entryLength - 1] == 0
+    }
+
+    def "fails on a truncated catalog"() {
+        given:
+        def bytes = new ByteArrayOutputStream()
+        new CatalogWriter(bytes).write(Catalog.Entry.file("a.txt", 5, 1000).withPayload(100, 5, Compression.NONE))
+
+        when:
+        new CatalogReader(new ByteArrayInputStream(bytes.toByteArray())).readCatalog()
+
+        then:
+        thrown(EOFException)
+    }
+
+    @Unroll
+    def "varint of #value takes #length bytes"() {
+        when:
+        def bytes = new ByteArrayOutputStream()
+        CatalogWriter.writeVarint(bytes, value)
+
+        then:
+        bytes.size() == length
+        CatalogWriter.varintLength(value) == length
+        CatalogReader.readVarint(new ByteArrayInputStream(bytes.toByteArray())) == value
+
+        where:
+        value          | length
+        0              | 1
+        127            | 1
+        128            | 2
+        16_383         | 2
+        16_384         | 3
+        Long.MAX_VALUE | 9
+        -1L            | 10
+    }
+
+    @Unroll
+    def "zigzag keeps #value small"() {
+        expect:
+        CatalogWriter.zigzag(value) == encoded
+        CatalogReader.unzigzag(encoded) == value
+
+        where:
+        value          | encoded
+        0              | 0
+        -1             | 1
+        1              | 2
+        Long.MIN_VALUE | -1L
+    }
+
+    def "siblings encode only the rest of their name"() {
+        given:
+        def bytes = new ByteArrayOutputStream()
+        def writer = new CatalogWriter(bytes)
+        writer.write(new Catalog.Entry("some/dir", true))
+        int first = bytes.size()
+
+        when:
+        writer.write(new Catalog.Entry("some/dir/file", true))
+
+        then: "flags, shared, length and the suffix"
+        bytes.size() - first == 1 + 1 + 1 + "/file".length()
+        bytes.toByteArray()[first + 1] == "some/dir".length()
+    }
+
+    def "fails on a shared prefix longer than the previous name"() {
+        given:
+        def bytes = new ByteArrayOutputStream()
+        bytes.write(CatalogWriter.ENTRY | CatalogWriter.DIRECTORY)
+        bytes.write(5)
+        bytes.write(1)
+        bytes.write((int) 'x'.charAt(0))
+
+        when:
+        new CatalogReader(new ByteArrayInputStream(bytes.toByteArray())).read()
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Corrupted catalog entry")
+    }
+
+    def "fails on entry flags without the entry bit"() {
+        when:
+        new CatalogReader(new ByteArrayInputStream([CatalogWriter.DIRECTORY] as byte[])).read()
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Corrupted catalog entry flags: 2"
+    }
+
+    private static List fields(Catalog.Entry entry) {
+        [entry.name, entry.directory, entry.offset, entry.size, entry.storedSize, entry.compression,
+         entry.lastModified, entry.reference, entry.digest as List, entry.checksum]
+    }
+}
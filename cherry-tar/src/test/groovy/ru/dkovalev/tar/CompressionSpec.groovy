@@ -0,0 +1,87 @@
+package ru.dkovalev.tar
+
+import spock.lang.Unroll
+
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+class CompressionSpec extends ArchiveSpecification {
+
+    @Unroll
+    def "round trip compressed with #archiver.class.simpleName on #threads threads"() {
+        given:
+        archiver.compression = new DeflateCompression()
+        archiver.compressionThreads = threads
+
+        when:
+        archiver.pack(archive, [src.toString()])
+        archiver.unpack(archive, out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+
+        where:
+        archiver                 | threads
+        new IndexedTarArchiver() | 1
+        new IndexedTarArchiver() | 4
+        new NioTarArchiver()     | 1
+        new NioTarArchiver()     | 4
+    }
+
+    def "stores compressible content in fewer bytes and empty files uncompressed"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.compression = new DeflateCompression()
+
+        when:
+        archiver.pack(archive, [src.toString()])
+
+        then:
+        with(entry(archive, "c/log.txt")) {
+            compression == DeflateCompression.ID
+            storedSize < size / 2
+        }
+        with(entry(archive, "empty")) {
+            compression == Compression.NONE
+            storedSize == 0
+        }
+    }
+
+    def "unpacks compressed entries from a stream"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.compression = new DeflateCompression()
+
+        when: "packed front to back to a channel"
+        FileChannel.open(Paths.get(archive), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).withCloseable {
+            archiver.pack(it, [src.toString()])
+        }
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), out.toString()) }
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+    }
+
+    def "fails on entries of an unregistered compression"() {
+        given:
+        def packer = new NioTarArchiver()
+        packer.compression = new DeflateCompression() {
+            @Override
+            int getId() {
+                7
+            }
+        }
+        packer.pack(archive, [src.resolve("c/log.txt").toString()])
+        Files.createDirectories(out)
+
+        when:
+        new NioTarArchiver().unpack(archive, out.toString())
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Unsupported compression of ${src.resolve('c/log.txt')}: 7".toString()
+    }
+}
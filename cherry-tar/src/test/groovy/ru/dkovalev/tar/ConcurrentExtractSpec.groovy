@@ -0,0 +1,58 @@
+package ru.dkovalev.tar
+
+import spock.lang.Unroll
+
+import java.nio.file.FileAlreadyExistsException
+import java.nio.file.Files
+
+class ConcurrentExtractSpec extends ArchiveSpecification {
+
+    @Unroll
+    def "extracts with #threads threads using #archiver.class.simpleName"() {
+        given:
+        archiver.extractThreads = threads
+        archiver.pack(archive, [src.toString()])
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+
+        where:
+        archiver                 | threads
+        new IndexedTarArchiver() | 2
+        new IndexedTarArchiver() | 8
+        new NioTarArchiver()     | 2
+        new NioTarArchiver()     | 8
+    }
+
+    def "extracts selected entries concurrently"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.extractThreads = 4
+        archiver.pack(archive, [src.toString()])
+
+        when:
+        archiver.unpack(archive, out.toString(), ["$src/c/*".toString()])
+
+        then:
+        tree(out.resolve(src)) == tree(src).findAll { it.key.startsWith("c") }
+    }
+
+    def "fails with the failure of an extract thread"() {
+        given: "a file of the tree already exists in the target"
+        def archiver = new NioTarArchiver()
+        archiver.extractThreads = 4
+        archiver.pack(archive, [src.toString()])
+        Files.createDirectories(out.resolve(src).resolve("c"))
+        Files.write(out.resolve(src).resolve("c/y.txt"), "old".bytes)
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        def e = thrown(FileAlreadyExistsException)
+        e.file == out.resolve(src).resolve("c/y.txt").toAbsolutePath().toString()
+    }
+}
@@ -0,0 +1,72 @@
+package ru.dkovalev.tar
+
+import spock.lang.Unroll
+
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+class DeduplicationSpec extends ArchiveSpecification {
+
+    @Unroll
+    def "stores identical content once with #archiver.class.simpleName"() {
+        given:
+        archiver.deduplicate = true
+        def full = work.resolve("${UUID.randomUUID()}.tar").toString()
+        new NioTarArchiver().pack(full, [src.toString()])
+
+        when:
+        archiver.pack(archive, [src.toString()])
+        archiver.unpack(archive, out.toString())
+
+        then:
+        entry(archive, "c/dup.bin").offset == entry(archive, "a/big.bin").offset
+        Files.size(Paths.get(archive)) < Files.size(Paths.get(full)) - Files.size(src.resolve("a/big.bin")) + 1000
+        tree(out.resolve(src)) == tree(src)
+
+        where:
+        archiver << [new IndexedTarArchiver(), new NioTarArchiver()]
+    }
+
+    @Unroll
+    def "extracts duplicates as #kind"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.deduplicate = true
+        archiver.linkDuplicates = linkDuplicates
+        archiver.extractThreads = 4
+        archiver.pack(archive, [src.toString()])
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+        Files.isSameFile(out.resolve(src).resolve("a/big.bin"), out.resolve(src).resolve("c/dup.bin")) == linkDuplicates
+
+        where:
+        linkDuplicates << [false, true]
+        kind = linkDuplicates ? "hard links" : "copies"
+    }
+
+    def "deduplicates content packed to a stream"() {
+        given: "a stream can not be rolled back, so content is hashed before it is stored"
+        def archiver = new NioTarArchiver()
+        archiver.deduplicate = true
+        def streamOut = Files.createTempDirectory(work, "stream-out")
+
+        when:
+        FileChannel.open(Paths.get(archive), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).withCloseable {
+            archiver.pack(it, [src.toString()])
+        }
+        archiver.unpack(archive, out.toString())
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), streamOut.toString()) }
+
+        then:
+        entry(archive, "c/dup.bin").offset == entry(archive, "a/big.bin").offset
+        tree(out.resolve(src)) == tree(src)
+        tree(streamOut.resolve(src)) == tree(src)
+    }
+}
@@ -0,0 +1,167 @@
+package ru.dkovalev.tar
+
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+import java.nio.file.attribute.FileTime
+
+import static ru.dkovalev.tar.ArchiveSpecification.tree
+
+class IncrementalArchiveSpec extends Specification {
+
+    /** Archivers store names as given, so files are packed by paths relative to the working directory. */
+    @Shared
+    Path work = Files.createTempDirectory(Files.createDirectories(Paths.get("target")), "incremental-spec")
+
+    Path src = Files.createTempDirectory(work, "src")
+    Path out = Files.createTempDirectory(work, "out")
+    String base = work.resolve("${UUID.randomUUID()}-base.tar").toString()
+    String archive = work.resolve("${UUID.randomUUID()}.tar").toString()
+
+    def setup() {
+        byte[] big = new byte[CompressedPayload.BLOCK_SIZE + 1000]
+        new Random(42).nextBytes(big)
+        Files.createDirectories(src.resolve("dir"))
+        Files.write(src.resolve("same.txt"), "unchanged".bytes)
+        Files.write(src.resolve("changed.txt"), "before".bytes)
+        Files.write(src.resolve("dir/big.bin"), big)
+    }
+
+    def cleanupSpec() {
+        work.toFile().deleteDir()
+    }
+
+    @Unroll
+    def "stores changed files and restores unchanged ones from the base with #archiver.class.simpleName #options"() {
+        given:
+        options.each { name, value -> archiver[name] = value }
+        archiver.pack(base, [src.toString()])
+
+        when:
+        Files.write(src.resolve("changed.txt"), "after, longer".bytes)
+        Files.write(src.resolve("new.txt"), "new".bytes)
+        archiver.pack(archive, [src.toString()], base)
+        archiver.unpack(archive, out.toString())
+
+        then:
+        references(archive) == ["dir/big.bin", "same.txt"] as Set
+        tree(out.resolve(src)) == tree(src)
+
+        where:
+        archiver                 | options
+        new IndexedTarArchiver() | [:]
+        new IndexedTarArchiver() | [contentDigests: true]
+        new IndexedTarArchiver() | [compression: new DeflateCompression()]
+        new NioTarArchiver()     | [:]
+        new NioTarArchiver()     | [deduplicate: true, extractThreads: 4]
+    }
+
+    @Unroll
+    def "#change file is #outcome comparing #detection"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.contentDigests = contentDigests
+        archiver.pack(base, [src.toString()])
+        def file = src.resolve("changed.txt")
+        def lastModified = Files.getLastModifiedTime(file)
+
+        when:
+        if (change == "touched") {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified.toMillis() + 10_000))
+        } else {
+            Files.write(file, "BEFORE".bytes)
+            Files.setLastModifiedTime(file, lastModified)
+        }
+        archiver.pack(archive, [src.toString()], base)
+
+        then:
+        references(archive).contains("changed.txt") == reference
+
+        where:
+        change             | contentDigests | reference
+        "touched"          | false          | false
+        "touched"          | true           | true
+        "same size edited" | false          | true
+        "same size edited" | true           | false
+
+        outcome = reference ? "referenced" : "stored"
+        detection = contentDigests ? "content digests" : "size and modification time"
+    }
+
+    def "resolves references through a base that is itself incremental"() {
+        given: "same.txt is a reference in the middle archive as well"
+        def archiver = new NioTarArchiver()
+        def middle = work.resolve("${UUID.randomUUID()}-middle.tar").toString()
+        archiver.pack(base, [src.toString()])
+        Files.write(src.resolve("changed.txt"), "after, longer".bytes)
+        archiver.pack(middle, [src.toString()], base)
+        Files.write(src.resolve("changed.txt"), "after, once more".bytes)
+
+        when:
+        archiver.pack(archive, [src.toString()], middle)
+        archiver.unpack(archive, out.toString())
+
+        then:
+        references(middle) == ["dir/big.bin", "same.txt"] as Set
+        references(archive) == ["dir/big.bin", "same.txt"] as Set
+        tree(out.resolve(src)) == tree(src)
+
+        when: "file system reads follow the chain too"
+        def fs = new ArchiveFileSystemProvider().newFileSystem(Paths.get(archive), [:])
+
+        then:
+        new String(Files.readAllBytes(fs.getPath("/$src/same.txt"))) == "unchanged"
+        Files.readAllBytes(fs.getPath("/$src/dir/big.bin")) == Files.readAllBytes(src.resolve("dir/big.bin"))
+
+        cleanup:
+        fs?.close()
+    }
+
+    def "unpacks an incremental archive from a stream against its base"() {
+        given: "a base recorded as given is resolved against the working directory"
+        def archiver = new NioTarArchiver()
+        archiver.pack(base, [src.toString()])
+        Files.write(src.resolve("changed.txt"), "after, longer".bytes)
+
+        when:
+        FileChannel.open(Paths.get(archive), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).withCloseable {
+            archiver.pack(it, [src.toString()], base)
+        }
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), out.toString()) }
+
+        then:
+        references(archive) == ["dir/big.bin", "same.txt"] as Set
+        tree(out.resolve(src)) == tree(src)
+    }
+
+    def "fails on a reference missing in the base"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(base, [src.toString()])
+        archiver.pack(archive, [src.toString()], base)
+        archiver.pack(base, [src.resolve("dir").toString()])
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        def e = thrown(IOException)
+        e.message ==~ /Referenced file ${src}\/\S+ is missing in base archive .*/
+    }
+
+    /**
+     * @return names of reference entries relative to the packed directory
+     */
+    private Set<String> references(String archiveName) {
+        IndexedArchive.open(Paths.get(archiveName)).withCloseable {
+            it.openIndex().readCatalog().entries.findAll { it.reference }.collect { src.relativize(Paths.get(it.name)).toString() } as Set
+        }
+    }
+}
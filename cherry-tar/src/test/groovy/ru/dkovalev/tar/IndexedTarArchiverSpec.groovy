@@ -0,0 +1,212 @@
+package ru.dkovalev.tar
+
+import spock.lang.Unroll
+
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+class IndexedTarArchiverSpec extends ArchiveSpecification {
+
+    @Unroll
+    def "round trip with #archiver.class.simpleName #options"() {
+        given: "the legacy format does not create parents of the packed directory"
+        options.each { name, value -> archiver[name] = value }
+        Files.createDirectories(out.resolve(src).parent)
+
+        when:
+        archiver.pack(archive, [src.toString()])
+        archiver.unpack(archive, out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+
+        where:
+        archiver                  | options
+        new IndexedTarArchiver()  | [:]
+        new IndexedTarArchiver()  | [contentDigests: true, checksums: false]
+        new IndexedTarArchiver()  | [walkThreads: 4]
+        new NioTarArchiver()      | [:]
+        new NioTarArchiver()      | [checksums: false]
+        new NioTarArchiver()      | [compression: new DeflateCompression(), deduplicate: true, extractThreads: 4, walkThreads: 4]
+        new Java7TarArchiver()    | [:]
+    }
+
+    def "unpacks only entries matching patterns"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [src.toString()])
+
+        when:
+        archiver.unpack(archive, out.toString(), ["$src/c/*.txt".toString(), "$src/a/b".toString()])
+
+        then:
+        tree(out.resolve(src)).keySet() == ["a", "a/b", "a/b/x.txt", "c", "c/log.txt", "c/y.txt"] as Set
+    }
+
+    def "fails on an archive with a bad magic"() {
+        given:
+        byte[] garbage = new byte[1000]
+        new Random(42).nextBytes(garbage)
+        Files.write(Paths.get(archive), garbage)
+        def archiver = new NioTarArchiver()
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Not an indexed archive")
+    }
+
+    def "fails on an archive with a corrupted trailer"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [src.toString()])
+        flipByte(Paths.get(archive), Files.size(Paths.get(archive)) - 1)
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Corrupted archive trailer")
+    }
+
+    @Unroll
+    def "rejects entry #name escaping the target directory"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [name])
+        def streamOut = Files.createTempDirectory(work, "stream-out")
+
+        when:
+        archiver.unpack(archive, out.toString())
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Entry outside of the target directory")
+
+        when:
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), streamOut.toString()) }
+
+        then:
+        e = thrown(IOException)
+        e.message.startsWith("Entry outside of the target directory")
+        Files.list(out).count() == 0
+        Files.list(streamOut).count() == 0
+
+        where:
+        name << [
+                "../${Paths.get('').toAbsolutePath().fileName}/${src.resolve('c/y.txt')}".toString(),
+                src.resolve("c/y.txt").toAbsolutePath().toString()]
+    }
+
+    def "appends after the trailer leaving existing bytes untouched"() {
+        given:
+        def archiver = new NioTarArchiver()
+        def added = Files.createDirectories(work.resolve("added-${UUID.randomUUID()}"))
+        Files.write(added.resolve("z.txt"), "appended".bytes)
+        archiver.pack(archive, [src.toString()])
+        byte[] packed = Files.readAllBytes(Paths.get(archive))
+        def streamOut = Files.createTempDirectory(work, "stream-out")
+
+        when:
+        archiver.append(archive, [added.toString()])
+        archiver.unpack(archive, out.toString())
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), streamOut.toString()) }
+
+        then:
+        Arrays.copyOf(Files.readAllBytes(Paths.get(archive)), packed.length) == packed
+        tree(out.resolve(src)) == tree(src)
+        tree(out.resolve(added)) == tree(added)
+        tree(streamOut.resolve(src)) == tree(src)
+        tree(streamOut.resolve(added)) == tree(added)
+        archiver.verify(archive).empty
+    }
+
+    def "an interrupted append leaves the archive as it was"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [src.toString()])
+        byte[] packed = Files.readAllBytes(Paths.get(archive))
+
+        when: "the append fails once its first entry is written"
+        archiver.listener = new ArchiveListener() {
+            @Override
+            void entryProcessed(Catalog.Entry entry, long bytes, long nanos) {
+                throw new IOException("Interrupted on " + entry.name)
+            }
+        }
+        archiver.append(archive, [src.resolve("c").toString()])
+
+        then:
+        thrown(IOException)
+        Files.readAllBytes(Paths.get(archive)) == packed
+
+        when:
+        new NioTarArchiver().unpack(archive, out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+    }
+
+    def "unpacks files appended as duplicates of a duplicate whose original was replaced"() {
+        given: "a is stored, b is its duplicate"
+        def archiver = new NioTarArchiver()
+        archiver.deduplicate = true
+        def dir = Files.createDirectories(work.resolve("dedup-${UUID.randomUUID()}"))
+        Files.write(dir.resolve("a"), "same".bytes)
+        Files.write(dir.resolve("b"), "same".bytes)
+        archiver.pack(archive, [dir.resolve("a").toString(), dir.resolve("b").toString()])
+        def streamOut = Files.createTempDirectory(work, "stream-out")
+
+        when: "a is replaced, c with the old content is stored as a duplicate of b"
+        Files.write(dir.resolve("a"), "changed".bytes)
+        Files.write(dir.resolve("c"), "same".bytes)
+        archiver.append(archive, [dir.resolve("a").toString(), dir.resolve("c").toString()])
+        archiver.unpack(archive, out.toString())
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), streamOut.toString()) }
+
+        then:
+        tree(out.resolve(dir)) == tree(dir)
+        tree(streamOut.resolve(dir)) == tree(dir)
+    }
+
+    @Unroll
+    def "reopens an archive whose append was cut short #tornBytes bytes before its end"() {
+        given:
+        def archiver = new NioTarArchiver()
+        def added = Files.createDirectories(work.resolve("added-${UUID.randomUUID()}"))
+        Files.write(added.resolve("z.txt"), "appended".bytes)
+        archiver.pack(archive, [src.toString()])
+        long packedSize = Files.size(Paths.get(archive))
+        archiver.append(archive, [added.toString()])
+
+        when: "a crash left only part of the appended segment on disk"
+        FileChannel.open(Paths.get(archive), StandardOpenOption.WRITE).withCloseable {
+            it.truncate(it.size() - tornBytes)
+        }
+        archiver.unpack(archive, out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+        !Files.exists(out.resolve(added))
+        archiver.verify(archive).empty
+
+        when: "the next append replaces the torn tail"
+        archiver.append(archive, [added.toString()])
+        def appendedOut = Files.createTempDirectory(work, "appended-out")
+        archiver.unpack(archive, appendedOut.toString())
+
+        then:
+        Files.size(Paths.get(archive)) > packedSize
+        tree(appendedOut.resolve(src)) == tree(src)
+        tree(appendedOut.resolve(added)) == tree(added)
+
+        where:
+        tornBytes << [1, 12, 20]
+    }
+}
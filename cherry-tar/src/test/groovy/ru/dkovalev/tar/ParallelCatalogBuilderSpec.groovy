@@ -0,0 +1,60 @@
+package ru.dkovalev.tar
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ParallelCatalogBuilderSpec extends Specification {
+
+    Path root = Files.createTempDirectory("catalog-spec")
+
+    def cleanup() {
+        root.toFile().deleteDir()
+    }
+
+    def "lists a deep tree in pre-order with siblings sorted by name"() {
+        given: "a chain of directories, each with a file around the next directory"
+        def dir = root
+        200.times {
+            Files.write(dir.resolve("a.txt"), "a".bytes)
+            Files.write(dir.resolve("z.txt"), "z".bytes)
+            dir = Files.createDirectory(dir.resolve("m"))
+        }
+
+        when:
+        def entries = new ParallelCatalogBuilder(4).createCatalog([root.toString()]).entries
+
+        then:
+        entries.size() == 1 + 200 * 3
+        entries*.name == expectedOrder(root, 200)
+        entries.findAll { it.file }.every { it.size == 1 }
+        entries*.name as Set == CatalogBuilder.createCatalog([root.toString()]).entries*.name as Set
+    }
+
+    def "fails on a missing file"() {
+        when:
+        new ParallelCatalogBuilder(2).createCatalog([root.resolve("missing").toString()])
+
+        then:
+        thrown(IOException)
+    }
+
+    private static List<String> expectedOrder(Path root, int depth) {
+        def names = [root.toString()]
+        def dir = root
+        depth.times {
+            names << dir.resolve("a.txt").toString()
+            dir = dir.resolve("m")
+            names << dir.toString()
+        }
+        // z.txt of each level follows the whole subtree of m
+        def z = []
+        dir = root
+        depth.times {
+            z.add(0, dir.resolve("z.txt").toString())
+            dir = dir.resolve("m")
+        }
+        names + z
+    }
+}
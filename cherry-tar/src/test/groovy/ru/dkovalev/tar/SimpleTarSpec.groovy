@@ -0,0 +1,53 @@
+package ru.dkovalev.tar
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class SimpleTarSpec extends Specification {
+
+    def "rejects incremental archives of the legacy format before packing"() {
+        given:
+        def archiver = Mock(TarArchiver)
+
+        when:
+        new SimpleTar(archiver).create(["-c", "--base", "base.tar", "new.tar", "src"] as String[])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.startsWith("Incremental archives are not supported")
+        0 * archiver._
+    }
+
+    def "rejects appending to an archive of the legacy format"() {
+        given:
+        def archiver = Mock(TarArchiver)
+
+        when:
+        new SimpleTar(archiver).append(["-r", legacyArchive(), "src"] as String[])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.startsWith("Appending to an archive of the legacy format is not supported")
+        0 * archiver._
+    }
+
+    def "rejects verifying an archive of the legacy format"() {
+        when:
+        new SimpleTar(Mock(TarArchiver)).verify(["-v", legacyArchive()] as String[])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.startsWith("Archives of the legacy format have no checksums to verify")
+    }
+
+    /**
+     * Only the head of an archive is read to tell its format.
+     */
+    private static String legacyArchive() {
+        def archive = Files.createTempFile("legacy", ".tar")
+        archive.toFile().deleteOnExit()
+        Files.write(archive, [0xAC, 0xED, 0x00, 0x05] as byte[])
+        archive.toString()
+    }
+}
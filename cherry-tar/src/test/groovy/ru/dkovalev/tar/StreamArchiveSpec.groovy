@@ -0,0 +1,87 @@
+package ru.dkovalev.tar
+
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.nio.file.StandardOpenOption
+
+class StreamArchiveSpec extends ArchiveSpecification {
+
+    def "unpacks the same from a stream as with random access"() {
+        given:
+        def archiver = new NioTarArchiver()
+        def streamOut = Files.createTempDirectory(work, "stream-out")
+
+        when: "packed front to back to a channel"
+        FileChannel.open(Paths.get(archive), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).withCloseable {
+            archiver.pack(it, [src.toString()])
+        }
+        archiver.unpack(archive, out.toString())
+        new FileInputStream(archive).withCloseable { archiver.unpack(Channels.newChannel(it), streamOut.toString()) }
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+        tree(streamOut.resolve(src)) == tree(src)
+    }
+
+    def "packs to and unpacks from channels that can not seek"() {
+        given:
+        def archiver = new IndexedTarArchiver()
+        def bytes = new ByteArrayOutputStream()
+
+        when:
+        archiver.pack(Channels.newChannel(bytes), [src.toString()])
+        archiver.unpack(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), out.toString())
+
+        then:
+        tree(out.resolve(src)) == tree(src)
+    }
+
+    def "lists entries from a stream in archive order"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [src.toString()])
+        def stdout = System.out
+        def listed = new ByteArrayOutputStream()
+
+        when:
+        System.out = new PrintStream(listed, true)
+        try {
+            new FileInputStream(archive).withCloseable { archiver.list(Channels.newChannel(it)) }
+        } finally {
+            System.out = stdout
+        }
+
+        then:
+        listed.toString().readLines() == IndexedArchive.open(Paths.get(archive)).withCloseable {
+            it.openIndex().readCatalog().entries*.name
+        }
+    }
+
+    def "fails on a bad magic read from a stream"() {
+        given:
+        byte[] garbage = new byte[1000]
+        new Random(42).nextBytes(garbage)
+
+        when:
+        new NioTarArchiver().unpack(Channels.newChannel(new ByteArrayInputStream(garbage)), out.toString())
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Not an indexed archive")
+    }
+
+    def "fails on a stream cut short"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [src.toString()])
+        byte[] bytes = Files.readAllBytes(Paths.get(archive))
+
+        when:
+        archiver.unpack(Channels.newChannel(new ByteArrayInputStream(bytes, 0, bytes.length - 100)), out.toString())
+
+        then:
+        thrown(EOFException)
+    }
+}
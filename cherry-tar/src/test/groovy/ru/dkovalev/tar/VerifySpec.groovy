@@ -0,0 +1,78 @@
+package ru.dkovalev.tar
+
+import spock.lang.Unroll
+
+import java.nio.file.Paths
+
+class VerifySpec extends ArchiveSpecification {
+
+    def "reports entries with a flipped payload byte"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.deduplicate = true
+        archiver.pack(archive, [src.toString()])
+        def big = entry(archive, "a/big.bin")
+
+        expect:
+        archiver.verify(archive).empty
+
+        when:
+        flipByte(Paths.get(archive), big.offset + 12345)
+
+        then: "the duplicate sharing the payload is reported too"
+        archiver.verify(archive)*.name as Set == [src.resolve("a/big.bin").toString(), src.resolve("c/dup.bin").toString()] as Set
+    }
+
+    @Unroll
+    def "checksums #file copied by NioTarArchiver cover the stored bytes"() {
+        given: "small files are copied through a buffer, large ones are mapped"
+        def archiver = new NioTarArchiver()
+        archiver.pack(archive, [src.toString()])
+        def entry = entry(archive, file)
+
+        expect:
+        archiver.verify(archive).empty
+
+        when:
+        flipByte(Paths.get(archive), entry.offset + entry.size - 1)
+
+        then:
+        archiver.verify(archive)*.name == [entry.name]
+
+        where:
+        file << ["c/y.txt", "c/log.txt", "a/big.bin"]
+    }
+
+    def "skips entries packed without checksums"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.checksums = false
+        archiver.pack(archive, [src.toString()])
+        def big = entry(archive, "a/big.bin")
+
+        when:
+        flipByte(Paths.get(archive), big.offset)
+
+        then:
+        !big.hasChecksum()
+        archiver.verify(archive).empty
+    }
+
+    def "checks compressed payloads as stored on extract threads"() {
+        given:
+        def archiver = new NioTarArchiver()
+        archiver.compression = new DeflateCompression()
+        archiver.extractThreads = 4
+        archiver.pack(archive, [src.toString()])
+        def log = entry(archive, "c/log.txt")
+
+        expect:
+        archiver.verify(archive).empty
+
+        when:
+        flipByte(Paths.get(archive), log.offset + log.storedSize - 1)
+
+        then:
+        archiver.verify(archive)*.name == [log.name]
+    }
+}
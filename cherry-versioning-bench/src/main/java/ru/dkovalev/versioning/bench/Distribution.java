@@ -0,0 +1,64 @@
+package ru.dkovalev.versioning.bench;
+
+import java.util.Random;
+
+/**
+ * Synthetic version strings resembling a repository: low majors and minors are frequent, patches spread wider.
+ * Generated with a fixed seed, so every run sees the same versions.
+ */
+public enum Distribution {
+
+    /**
+     * "a.b.c" versions, all packed into a long by {@code Version}.
+     */
+    SEMANTIC {
+        @Override
+        String next(Random random) {
+            return major(random) + "." + minor(random) + "." + patch(random);
+        }
+    },
+
+    /**
+     * As {@link #SEMANTIC} with every fifth version carrying a date build number, e.g. "2.3.1.20200417",
+     * too wide to pack, so comparisons take the component loop.
+     */
+    BUILD_NUMBERS {
+        @Override
+        String next(Random random) {
+            String version = SEMANTIC.next(random);
+            if (random.nextInt(5) == 0) {
+                version += "." + (20_180_101 + random.nextInt(30_000));
+            }
+            return version;
+        }
+    };
+
+    abstract String next(Random random);
+
+    public String[] generate(int count) {
+        return generate(count, new Random(42));
+    }
+
+    /**
+     * @param random source of versions, seeded apart from other generated sets which must not repeat them
+     */
+    public String[] generate(int count, Random random) {
+        String[] versions = new String[count];
+        for (int i = 0; i < count; i++) {
+            versions[i] = next(random);
+        }
+        return versions;
+    }
+
+    private static int major(Random random) {
+        return (int) Math.abs(random.nextGaussian() * 3);
+    }
+
+    private static int minor(Random random) {
+        return random.nextInt(1 + random.nextInt(30));
+    }
+
+    private static int patch(Random random) {
+        return random.nextInt(1 + random.nextInt(200));
+    }
+}
@@ -0,0 +1,113 @@
+package ru.dkovalev.versioning.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dkovalev.versioning.Version;
+import ru.dkovalev.versioning.VersionInterner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, comparison and sorting of {@link Version}s.
+ * <pre>
+ * mvn -pl cherry-versioning-bench -am package
+ * java -jar cherry-versioning-bench/target/benchmarks.jar VersionBenchmark -prof gc
+ * java -jar cherry-versioning-bench/target/benchmarks.jar VersionBenchmark.sort -p distribution=BUILD_NUMBERS
+ * </pre>
+ * The gc profiler reports allocation per operation ("gc.alloc.rate.norm"). Single version operations
+ * cycle through {@value #VERSIONS} versions of the distribution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VersionBenchmark {
+
+    private static final int VERSIONS = 1024;
+
+    @Param
+    private Distribution distribution;
+
+    @Param("100000")
+    private int sortSize;
+
+    private String[] strings;
+    private Version[] versions;
+    private List<Version> unsorted;
+    private VersionInterner interner;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        strings = distribution.generate(VERSIONS);
+        versions = Arrays.stream(strings).map(Version::new).toArray(Version[]::new);
+        interner = new VersionInterner(VERSIONS * 2);
+        unsorted = new ArrayList<>(sortSize);
+        for (String version : distribution.generate(sortSize)) {
+            unsorted.add(new Version(version));
+        }
+        Collections.shuffle(unsorted, new Random(42));
+    }
+
+    private int next() {
+        return next++ & (VERSIONS - 1);
+    }
+
+    @Benchmark
+    public Version construct() {
+        return new Version(strings[next()]);
+    }
+
+    @Benchmark
+    public Version parse() {
+        return Version.parse(strings[next()]);
+    }
+
+    @Benchmark
+    public Version intern() {
+        return interner.intern(strings[next()]);
+    }
+
+    @Benchmark
+    public int compareTo() {
+        int i = next();
+        return versions[i].compareTo(versions[(i + 1) & (VERSIONS - 1)]);
+    }
+
+    @Benchmark
+    public boolean equalsAndHashCode() {
+        int i = next();
+        Version version = versions[i];
+        return version.hashCode() == versions[i ^ 1].hashCode() && version.equals(versions[i ^ 1]);
+    }
+
+    /**
+     * Sorts a copy of {@link #sortSize} shuffled versions, the copy is part of the measurement.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public List<Version> sort() {
+        List<Version> copy = new ArrayList<>(unsorted);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,130 @@
+package ru.dkovalev.versioning.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.dkovalev.versioning.Version;
+import ru.dkovalev.versioning.VersionRange;
+import ru.dkovalev.versioning.VersionRangeCache;
+import ru.dkovalev.versioning.VersionRangeIndex;
+import ru.dkovalev.versioning.VersionRangeSet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of range specs and matching versions against ranges.
+ * <pre>
+ * mvn -pl cherry-versioning-bench -am package
+ * java -jar cherry-versioning-bench/target/benchmarks.jar VersionRangeBenchmark -prof gc
+ * </pre>
+ * Specs are built from versions of the distribution in all bound notations. Matching against many ranges
+ * compares a chain of {@link VersionRange#contains(Version)} calls with {@link VersionRangeSet} and
+ * {@link VersionRangeIndex} over the same {@link #rules} ranges.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VersionRangeBenchmark {
+
+    private static final int SPECS = 1024;
+    private static final String[] NOTATIONS = {"[%s,%s)", "(%s,%s]", "[%s,%s]", "(%s,%s)", "[%s,)", "(,%2$s)"};
+
+    @Param
+    private Distribution distribution;
+
+    @Param({"64", "10000"})
+    private int rules;
+
+    private String[] specs;
+    private VersionRange[] ranges;
+    private Version[] versions;
+    private VersionRangeCache cache;
+    private VersionRange[] ruleRanges;
+    private VersionRangeSet ruleSet;
+    private VersionRangeIndex ruleIndex;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // separate seeds, so looked up versions are not the bounds of the ranges they are matched against
+        specs = specs(SPECS, new Random(1));
+        ranges = Arrays.stream(specs).map(VersionRange::fromSpec).toArray(VersionRange[]::new);
+        versions = Arrays.stream(distribution.generate(SPECS, new Random(42))).map(Version::new).toArray(Version[]::new);
+        cache = new VersionRangeCache(SPECS * 2);
+        ruleRanges = Arrays.stream(specs(rules, new Random(7))).map(VersionRange::fromSpec).toArray(VersionRange[]::new);
+        List<VersionRange> rulesList = Arrays.asList(ruleRanges);
+        ruleSet = VersionRangeSet.of(rulesList);
+        ruleIndex = VersionRangeIndex.of(rulesList);
+    }
+
+    private String[] specs(int count, Random random) {
+        String[] bounds = distribution.generate(count * 2, random);
+        String[] specs = new String[count];
+        for (int i = 0; i < count; i++) {
+            String a = bounds[2 * i];
+            String b = bounds[2 * i + 1];
+            boolean ordered = new Version(a).compareTo(new Version(b)) <= 0;
+            specs[i] = String.format(NOTATIONS[random.nextInt(NOTATIONS.length)], ordered ? a : b, ordered ? b : a);
+        }
+        return specs;
+    }
+
+    private int next() {
+        return next++ & (SPECS - 1);
+    }
+
+    @Benchmark
+    public VersionRange fromSpec() {
+        return VersionRange.fromSpec(specs[next()]);
+    }
+
+    @Benchmark
+    public VersionRange cachedFromSpec() {
+        return cache.get(specs[next()]);
+    }
+
+    @Benchmark
+    public boolean contains() {
+        int i = next();
+        return ranges[i].contains(versions[i]);
+    }
+
+    /**
+     * Baseline for matching many rules: every range is tested.
+     */
+    @Benchmark
+    public int containsChain() {
+        Version version = versions[next()];
+        int matches = 0;
+        for (VersionRange range : ruleRanges) {
+            if (range.contains(version)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public boolean rangeSetContains() {
+        return ruleSet.contains(versions[next()]);
+    }
+
+    @Benchmark
+    public int indexFind() {
+        return ruleIndex.find(versions[next()]).size();
+    }
+}
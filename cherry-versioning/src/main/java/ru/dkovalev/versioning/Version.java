@@ -1,11 +1,7 @@
 package ru.dkovalev.versioning;
 
-import org.apache.commons.lang3.StringUtils;
-
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * Simple support for string based versions in "a.b.c.d" format.
@@ -13,44 +9,142 @@ import java.util.stream.Collectors;
  * See maven
  * <a href="https://maven.apache.org/ref/3.6.1/maven-artifact/apidocs/org/apache/maven/artifact/versioning/ComparableVersion.html">ComparableVersion</a>
  * for more advanced implementation.
+ * <p/>
+ * Versions of up to 4 components below 65536 are packed into a long, 16 bits per component from the most
+ * significant, so comparison, equality and hash are single primitive operations. Wider versions keep an array,
+ * as does 65535.65535.65535.65535, whose packed value marks a wide version while parsing.
  */
 public class Version implements Comparable<Version> {
 
     private static final int DEFAULT_COMPONENTS_COUNT = 4;
-    private static final String SEPARATOR = ".";
-    private static final Pattern VERSION_FORMAT = Pattern.compile("[0-9]+(?:\\.[0-9+])*");
+    private static final char SEPARATOR = '.';
+    private static final int PACKED_COMPONENTS = 4;
+    private static final int PACKED_COMPONENT_BITS = 16;
+    private static final int PACKED_COMPONENT_MASK = (1 << PACKED_COMPONENT_BITS) - 1;
+    /** Result of {@link #parsePacked} for a wide version, a version of four 65535 components is kept wide. */
+    private static final long WIDE = -1;
 
     private final String version;
-    private final String canonicalVersion;
+    private final int componentsCount;
+    /** Packed components, 0 for a wide version. */
+    private final long packed;
+    /** Components of a wide version, null when packed. */
     private final int[] components;
+    /** Built on first request, a race only builds an equal string twice. */
+    private String canonicalVersion;
 
     public Version(String version) {
         this(version, DEFAULT_COMPONENTS_COUNT);
     }
 
     public Version(String version, int componentsCount) {
-        this.version = Objects.requireNonNull(version);
-        if (!VERSION_FORMAT.matcher(this.version).matches()) {
-            throw new IllegalArgumentException("Invalid version format: " + version);
-        }
+        this(version, componentsCount, parsePacked(Objects.requireNonNull(version), componentsCount));
+    }
+
+    private Version(String version, int componentsCount, long packed) {
+        this.version = version;
+        this.componentsCount = componentsCount;
+        this.packed = packed != WIDE ? packed : 0;
+        this.components = packed != WIDE ? null : parseComponents(version, componentsCount);
+    }
+
+    private static int shift(int i) {
+        return (PACKED_COMPONENTS - 1 - i) * PACKED_COMPONENT_BITS;
+    }
+
+    /**
+     * Same as {@link #Version(String)}, e.g. for a version in a larger buffer. Only the version string is allocated
+     * for a packed version, the string is not copied when a String is given.
+     * See {@link VersionInterner} to share instances of frequent versions.
+     */
+    public static Version parse(CharSequence version) {
+        return parse(version, DEFAULT_COMPONENTS_COUNT);
+    }
+
+    public static Version parse(CharSequence version, int componentsCount) {
+        long packed = parsePacked(Objects.requireNonNull(version), componentsCount);
+        return new Version(version.toString(), componentsCount, packed);
+    }
+
+    /**
+     * Scans the version once accumulating components directly into the packed long.
+     *
+     * @return packed components, {@link #WIDE} as soon as a component or the count does not fit,
+     * the version is then parsed again by {@link #parseComponents}
+     */
+    private static long parsePacked(CharSequence version, int componentsCount) {
         if (componentsCount < 1) {
             throw new IllegalArgumentException("Components count must be >= 1: " + componentsCount);
         }
-        this.components = parseComponents(this.version, componentsCount);
-        this.canonicalVersion = Arrays.stream(this.components)
-                .mapToObj(String::valueOf)
-                .collect(Collectors.joining(SEPARATOR));
-    }
-
-    private int[] parseComponents(String version, int componentsCount) {
-        // String.split fastpath is not activated for "." hence using StringUtils
-        String[] split = StringUtils.split(version, SEPARATOR);
-        if (split.length > componentsCount) {
+        if (componentsCount > PACKED_COMPONENTS) {
+            return WIDE;
+        }
+        long packed = 0;
+        int count = 0;
+        int length = version.length();
+        int i = 0;
+        while (true) {
+            int start = i;
+            int component = 0;
+            for (char c; i < length && (c = version.charAt(i)) >= '0' && c <= '9'; i++) {
+                component = component * 10 + (c - '0');
+                if (component > PACKED_COMPONENT_MASK) {
+                    return WIDE;
+                }
+            }
+            if (i == start) {
+                throw new IllegalArgumentException("Invalid version format: " + version);
+            }
+            if (count < componentsCount) {
+                packed |= (long) component << shift(count);
+            }
+            count++;
+            if (i == length) {
+                break;
+            }
+            if (version.charAt(i++) != SEPARATOR) {
+                throw new IllegalArgumentException("Invalid version format: " + version);
+            }
+        }
+        if (count > componentsCount) {
             throw new IllegalArgumentException("Only " + componentsCount + " components supported: " + version);
         }
+        return packed;
+    }
+
+    /**
+     * Scans the version once: digits accumulate into the current component, a separator starts the next one.
+     */
+    private static int[] parseComponents(CharSequence version, int componentsCount) {
         int[] components = new int[componentsCount];
-        for (int i = 0; i < split.length; i++) {
-            components[i] = Integer.parseInt(split[i]);
+        int count = 0;
+        int length = version.length();
+        int i = 0;
+        while (true) {
+            int start = i;
+            long component = 0;
+            for (char c; i < length && (c = version.charAt(i)) >= '0' && c <= '9'; i++) {
+                component = component * 10 + (c - '0');
+                if (component > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Version component is too large: " + version);
+                }
+            }
+            if (i == start) {
+                throw new IllegalArgumentException("Invalid version format: " + version);
+            }
+            if (count < componentsCount) {
+                components[count] = (int) component;
+            }
+            count++;
+            if (i == length) {
+                break;
+            }
+            if (version.charAt(i++) != SEPARATOR) {
+                throw new IllegalArgumentException("Invalid version format: " + version);
+            }
+        }
+        if (count > componentsCount) {
+            throw new IllegalArgumentException("Only " + componentsCount + " components supported: " + version);
         }
         return components;
     }
@@ -60,11 +154,23 @@ public class Version implements Comparable<Version> {
     }
 
     public String getCanonicalVersion() {
-        return canonicalVersion;
+        String canonical = canonicalVersion;
+        if (canonical == null) {
+            StringBuilder builder = new StringBuilder(componentsCount * 2);
+            for (int i = 0; i < componentsCount; i++) {
+                if (i > 0) {
+                    builder.append(SEPARATOR);
+                }
+                builder.append(getPart(i));
+            }
+            canonical = builder.toString();
+            canonicalVersion = canonical;
+        }
+        return canonical;
     }
 
     public int getComponentsCount() {
-        return components.length;
+        return componentsCount;
     }
 
     /**
@@ -72,10 +178,14 @@ public class Version implements Comparable<Version> {
      */
     @Override
     public int compareTo(Version o) {
-        int length = Math.max(components.length, o.components.length);
+        if (components == null && o.components == null) {
+            // missing components are zero bits, so versions of different counts compare as padded
+            return Long.compareUnsigned(packed, o.packed);
+        }
+        int length = Math.max(componentsCount, o.componentsCount);
         for (int i = 0; i < length; i++) {
-            int thisPart = getPart(components, i);
-            int thatPart = getPart(o.components, i);
+            int thisPart = getPart(i);
+            int thatPart = o.getPart(i);
             if (thisPart < thatPart) {
                 return -1;
             }
@@ -86,8 +196,11 @@ public class Version implements Comparable<Version> {
         return 0;
     }
 
-    private int getPart(int[] components, int i) {
-        return i < components.length ? components[i] : 0;
+    private int getPart(int i) {
+        if (i >= componentsCount) {
+            return 0;
+        }
+        return components != null ? components[i] : (int) (packed >>> shift(i)) & PACKED_COMPONENT_MASK;
     }
 
     @Override
@@ -95,12 +208,15 @@ public class Version implements Comparable<Version> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Version version = (Version) o;
-        return Objects.equals(canonicalVersion, version.canonicalVersion);
+        // same as comparing canonical versions, equal components are either both packed or both wide
+        return componentsCount == version.componentsCount
+                && packed == version.packed
+                && Arrays.equals(components, version.components);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(canonicalVersion);
+        return components != null ? Arrays.hashCode(components) : Long.hashCode(packed) * 31 + componentsCount;
     }
 
     @Override
@@ -0,0 +1,139 @@
+package ru.dkovalev.versioning;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Known versions of artifacts, resolving the highest or lowest version satisfying constraints.
+ * <p/>
+ * Versions of an artifact are kept sorted, equal versions in different notations ("1" and "1.0") are stored once.
+ * Constraints are intersected into disjoint ranges first, then each range is looked up in the sorted versions
+ * from the preferred end, so only O(r log n) work is done for r ranges instead of filtering every version.
+ * <p/>
+ * Reads take no locks and see an immutable snapshot of an artifact's versions. Updates copy the versions
+ * of the artifact and publish the copy, updates of the same artifact are serialized, so batch them with
+ * {@link #addAll(String, Collection)}.
+ */
+public class VersionCatalog {
+
+    private final ConcurrentMap<String, NavigableSet<Version>> artifacts = new ConcurrentHashMap<>();
+
+    public void add(String artifact, Version version) {
+        addAll(artifact, Collections.singletonList(Objects.requireNonNull(version)));
+    }
+
+    public void addAll(String artifact, Collection<Version> versions) {
+        update(artifact, copy -> copy.addAll(versions));
+    }
+
+    /**
+     * @return true if the version was known
+     */
+    public boolean remove(String artifact, Version version) {
+        Objects.requireNonNull(version);
+        boolean[] removed = new boolean[1];
+        update(artifact, copy -> removed[0] = copy.remove(version));
+        return removed[0];
+    }
+
+    private void update(String artifact, Consumer<TreeSet<Version>> change) {
+        artifacts.compute(Objects.requireNonNull(artifact), (name, current) -> {
+            TreeSet<Version> copy = current == null ? new TreeSet<>() : new TreeSet<>(current);
+            change.accept(copy);
+            return copy.isEmpty() ? null : Collections.unmodifiableNavigableSet(copy);
+        });
+    }
+
+    public Set<String> getArtifacts() {
+        return Collections.unmodifiableSet(artifacts.keySet());
+    }
+
+    /**
+     * @return sorted snapshot of versions, empty for an unknown artifact
+     */
+    public NavigableSet<Version> getVersions(String artifact) {
+        NavigableSet<Version> versions = artifacts.get(artifact);
+        return versions == null ? Collections.emptyNavigableSet() : versions;
+    }
+
+    /**
+     * @return highest version contained in all ranges, null if there is none
+     */
+    public Version findHighest(String artifact, VersionRange... constraints) {
+        return findHighest(artifact, Arrays.asList(constraints));
+    }
+
+    public Version findHighest(String artifact, Collection<VersionRange> constraints) {
+        return find(artifact, intersection(constraints), true);
+    }
+
+    /**
+     * @return highest version in the set, null if there is none
+     */
+    public Version findHighest(String artifact, VersionRangeSet allowed) {
+        return find(artifact, allowed, true);
+    }
+
+    /**
+     * @return lowest version contained in all ranges, null if there is none
+     */
+    public Version findLowest(String artifact, VersionRange... constraints) {
+        return findLowest(artifact, Arrays.asList(constraints));
+    }
+
+    public Version findLowest(String artifact, Collection<VersionRange> constraints) {
+        return find(artifact, intersection(constraints), false);
+    }
+
+    /**
+     * @return lowest version in the set, null if there is none
+     */
+    public Version findLowest(String artifact, VersionRangeSet allowed) {
+        return find(artifact, allowed, false);
+    }
+
+    private static VersionRangeSet intersection(Collection<VersionRange> constraints) {
+        VersionRangeSet allowed = VersionRangeSet.of(VersionRange.unbounded());
+        for (VersionRange constraint : constraints) {
+            allowed = allowed.intersection(VersionRangeSet.of(constraint));
+        }
+        return allowed;
+    }
+
+    private Version find(String artifact, VersionRangeSet allowed, boolean highest) {
+        NavigableSet<Version> versions = artifacts.get(artifact);
+        if (versions == null) {
+            return null;
+        }
+        List<VersionRange> ranges = allowed.getRanges();
+        for (int i = 0; i < ranges.size(); i++) {
+            NavigableSet<Version> candidates = subSet(versions, ranges.get(highest ? ranges.size() - 1 - i : i));
+            if (!candidates.isEmpty()) {
+                return highest ? candidates.last() : candidates.first();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return view of versions in the non-empty range
+     */
+    private static NavigableSet<Version> subSet(NavigableSet<Version> versions, VersionRange range) {
+        if (range.getLowerBound() != null) {
+            versions = versions.tailSet(range.getLowerBound(), range.isLowerBoundInclusive());
+        }
+        if (range.getUpperBound() != null) {
+            versions = versions.headSet(range.getUpperBound(), range.isUpperBoundInclusive());
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.dkovalev.versioning;
+
+/**
+ * Bounded cache of parsed versions, so frequently parsed versions are shared instances.
+ * <p/>
+ * A version is cached in a slot chosen by hash of its text, a version of another text hashing to the same slot
+ * replaces it. Lookups take no locks and allocate nothing on a hit, safe for concurrent use.
+ */
+public class VersionInterner {
+
+    private final Version[] slots;
+    private final int componentsCount;
+
+    public VersionInterner(int capacity) {
+        this(capacity, 4);
+    }
+
+    public VersionInterner(int capacity, int componentsCount) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be in 1..2^30: " + capacity);
+        }
+        if (componentsCount < 1) {
+            throw new IllegalArgumentException("Components count must be >= 1: " + componentsCount);
+        }
+        // rounded up to a power of two, so a slot is taken by a mask
+        this.slots = new Version[capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+        this.componentsCount = componentsCount;
+    }
+
+    /**
+     * @return cached version of the same text, or the parsed one cached in place of the previous
+     */
+    public Version intern(CharSequence version) {
+        int hash = hash(version);
+        int slot = (hash ^ hash >>> 16) & (slots.length - 1);
+        // versions are immutable, a racy read sees either a complete version or null
+        Version cached = slots[slot];
+        if (cached != null && cached.getVersion().contentEquals(version)) {
+            return cached;
+        }
+        Version parsed = Version.parse(version, componentsCount);
+        slots[slot] = parsed;
+        return parsed;
+    }
+
+    /**
+     * @return number of slots, the requested capacity rounded up to a power of two
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    private static int hash(CharSequence text) {
+        if (text instanceof String) {
+            return text.hashCode();
+        }
+        int hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash;
+    }
+}
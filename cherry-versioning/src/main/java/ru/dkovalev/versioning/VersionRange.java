@@ -1,9 +1,6 @@
 package ru.dkovalev.versioning;
 
-import org.apache.commons.lang3.StringUtils;
-
-import java.util.Arrays;
-import java.util.List;
+import java.util.Comparator;
 import java.util.Objects;
 
 /**
@@ -12,10 +9,11 @@ import java.util.Objects;
  * See maven
  * <a href="https://maven.apache.org/ref/3.6.1/maven-artifact/apidocs/org/apache/maven/artifact/versioning/VersionRange.html">VersionRange</a>
  * for more advanced implementation.
+ * <p/>
+ * See {@link VersionRangeSet} for a list of ranges, e.g. (1.0,2.0),[3.1,4.0)
  *
  * To be implemented:
- * 1. list of ranges, e.g. (1.0,2.0),[3.1,4.0)
- * 2. simplified range spec for one value range, e.g. 1.0 for [1.0,1.0]
+ * 1. simplified range spec for one value range, e.g. 1.0 for [1.0,1.0]
  */
 public class VersionRange {
 
@@ -23,9 +21,29 @@ public class VersionRange {
     private static final char LOWER_EXCLUSIVE_MARK = '(';
     private static final char UPPER_INCLUSIVE_MARK = ']';
     private static final char UPPER_EXCLUSIVE_MARK = ')';
+    private static final char BOUNDS_SEPARATOR = ',';
+
+    /**
+     * Ranges starting earlier first: unbounded lower bound, then by version, an inclusive bound before an exclusive one.
+     */
+    static final Comparator<VersionRange> BY_LOWER_BOUND = (a, b) -> {
+        if (a.getLowerBound() == null || b.getLowerBound() == null) {
+            return Boolean.compare(a.getLowerBound() != null, b.getLowerBound() != null);
+        }
+        int cmp = a.getLowerBound().compareTo(b.getLowerBound());
+        return cmp != 0 ? cmp : Boolean.compare(b.isLowerBoundInclusive(), a.isLowerBoundInclusive());
+    };
 
-    private static final List<Character> LOWER_MARKS = Arrays.asList(LOWER_INCLUSIVE_MARK, LOWER_EXCLUSIVE_MARK);
-    private static final List<Character> UPPER_MARKS = Arrays.asList(UPPER_INCLUSIVE_MARK, UPPER_EXCLUSIVE_MARK);
+    /**
+     * Ranges ending earlier first: by version, an exclusive bound before an inclusive one, unbounded upper bound last.
+     */
+    static final Comparator<VersionRange> BY_UPPER_BOUND = (a, b) -> {
+        if (a.getUpperBound() == null || b.getUpperBound() == null) {
+            return Boolean.compare(a.getUpperBound() == null, b.getUpperBound() == null);
+        }
+        int cmp = a.getUpperBound().compareTo(b.getUpperBound());
+        return cmp != 0 ? cmp : Boolean.compare(a.isUpperBoundInclusive(), b.isUpperBoundInclusive());
+    };
 
     private final Bound lowerBound;
     private final Bound upperBound;
@@ -60,31 +78,40 @@ public class VersionRange {
      * </ul>
      *
      * Unbounded at both ends (simultaneously open and closed): (,) = no bounds {@link VersionRange#unbounded() unbounded}
+     * <p/>
+     * The spec is scanned once, only bound versions are allocated. See {@link VersionRangeCache} for specs parsed repeatedly.
      */
     public static VersionRange fromSpec(String spec) {
-        // todo Rewrite with regexp
         Objects.requireNonNull(spec);
-        if (spec.length() < 3) {
+        int length = spec.length();
+        if (length < 3) {
             throw new IllegalArgumentException("Invalid version range specification: " + spec);
         }
 
         char lowerMark = spec.charAt(0);
-        char upperMark = spec.charAt(spec.length() - 1);
-        if (!LOWER_MARKS.contains(lowerMark)) {
+        char upperMark = spec.charAt(length - 1);
+        if (lowerMark != LOWER_INCLUSIVE_MARK && lowerMark != LOWER_EXCLUSIVE_MARK) {
             throw new IllegalArgumentException("Invalid version range specification: " + spec);
         }
-        if (!UPPER_MARKS.contains(upperMark)) {
+        if (upperMark != UPPER_INCLUSIVE_MARK && upperMark != UPPER_EXCLUSIVE_MARK) {
             throw new IllegalArgumentException("Invalid version range specification: " + spec);
         }
 
-        String interval = spec.substring(1, spec.length() - 1);
-        String[] bounds = StringUtils.splitPreserveAllTokens(interval, ",");
-        if (bounds.length != 2) {
+        int separator = -1;
+        for (int i = 1; i < length - 1; i++) {
+            if (spec.charAt(i) == BOUNDS_SEPARATOR) {
+                if (separator >= 0) {
+                    throw new IllegalArgumentException("Invalid version range specification: " + spec);
+                }
+                separator = i;
+            }
+        }
+        if (separator < 0) {
             throw new IllegalArgumentException("Invalid version range specification: " + spec);
         }
 
-        Version lowerBound = getBound(bounds[0]);
-        Version upperBound = getBound(bounds[1]);
+        Version lowerBound = getBound(spec, 1, separator);
+        Version upperBound = getBound(spec, separator + 1, length - 1);
 
         return new VersionRange(
                 lowerBound,
@@ -93,9 +120,28 @@ public class VersionRange {
                 upperBound != null && upperMark == UPPER_INCLUSIVE_MARK);
     }
 
-    private static Version getBound(String text) {
-        text = StringUtils.trimToNull(text);
-        return text == null ? null : new Version(text);
+    /**
+     * @return version between the indexes trimmed of whitespace, null if blank
+     */
+    private static Version getBound(String spec, int start, int end) {
+        while (start < end && spec.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && spec.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return start == end ? null : new Version(spec.substring(start, end));
+    }
+
+    /**
+     * Null bound is unbounded and never inclusive.
+     */
+    static VersionRange of(Version lowerBound, boolean lowerBoundInclusive, Version upperBound, boolean upperBoundInclusive) {
+        return new VersionRange(
+                lowerBound,
+                lowerBound != null && lowerBoundInclusive,
+                upperBound,
+                upperBound != null && upperBoundInclusive);
     }
 
 
@@ -166,6 +212,53 @@ public class VersionRange {
         return lowerBound.leftOf(version) && upperBound.rightOf(version);
     }
 
+    /**
+     * @return true if the lower bound admits the version
+     */
+    boolean startsBeforeOrAt(Version version) {
+        return lowerBound.leftOf(version);
+    }
+
+    /**
+     * @return true if the upper bound admits the version
+     */
+    boolean endsAfterOrAt(Version version) {
+        return upperBound.rightOf(version);
+    }
+
+    /**
+     * @return null when unbounded on the left
+     */
+    public Version getLowerBound() {
+        return lowerBound.bound;
+    }
+
+    public boolean isLowerBoundInclusive() {
+        return lowerBound.inclusive;
+    }
+
+    /**
+     * @return null when unbounded on the right
+     */
+    public Version getUpperBound() {
+        return upperBound.bound;
+    }
+
+    public boolean isUpperBoundInclusive() {
+        return upperBound.inclusive;
+    }
+
+    /**
+     * @return true if no version is in the range, e.g. (1.0,1.0) or [2.0,1.0]
+     */
+    public boolean isEmpty() {
+        if (lowerBound.bound == null || upperBound.bound == null) {
+            return false;
+        }
+        int cmp = lowerBound.bound.compareTo(upperBound.bound);
+        return cmp > 0 || cmp == 0 && !(lowerBound.inclusive && upperBound.inclusive);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,122 @@
+package ru.dkovalev.versioning;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of ranges parsed by {@link VersionRange#fromSpec(String)}, keyed by spec, safe for concurrent use.
+ * <p/>
+ * A hit is a single map lookup. Beyond capacity an entry is evicted by second chance: a clock hand goes round
+ * the entries, resuming where the previous eviction stopped, and spares entries used since it last passed them,
+ * so the hot set of specs stays cached. Invalid specs are not cached.
+ */
+public class VersionRangeCache {
+
+    private final ConcurrentMap<String, Entry> ranges = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    /** Clock hand, guarded by this. The map's iterators are weakly consistent, so it survives concurrent updates. */
+    private Iterator<Map.Entry<String, Entry>> hand = Collections.emptyIterator();
+
+    public VersionRangeCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be >= 1: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return cached range of the spec, parsed and cached on a miss
+     */
+    public VersionRange get(String spec) {
+        Entry entry = ranges.get(Objects.requireNonNull(spec));
+        if (entry != null) {
+            hits.increment();
+            if (!entry.used) {
+                // written once per sweep, hits on a hot entry only read the flag
+                entry.used = true;
+            }
+            return entry.range;
+        }
+        misses.increment();
+        VersionRange range = VersionRange.fromSpec(spec);
+        if (ranges.putIfAbsent(spec, new Entry(range)) == null) {
+            while (ranges.size() > capacity) {
+                evict();
+            }
+        }
+        return range;
+    }
+
+    private synchronized void evict() {
+        // two turns at most, the first one may only clear flags
+        for (int steps = 2 * ranges.size(); steps >= 0; steps--) {
+            if (!hand.hasNext()) {
+                hand = ranges.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<String, Entry> next = hand.next();
+            Entry entry = next.getValue();
+            if (entry.used) {
+                entry.used = false;
+            } else if (ranges.remove(next.getKey(), entry)) {
+                evictions.increment();
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return ranges.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public void clear() {
+        ranges.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "VersionRangeCache{" +
+                "size=" + size() +
+                ", capacity=" + capacity +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+
+    private static final class Entry {
+        final VersionRange range;
+        /** Set on a hit, cleared by the clock hand passing the entry. */
+        volatile boolean used;
+
+        Entry(VersionRange range) {
+            this.range = range;
+        }
+    }
+}
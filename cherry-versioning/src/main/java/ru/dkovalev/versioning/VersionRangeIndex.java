@@ -0,0 +1,177 @@
+package ru.dkovalev.versioning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Finds all ranges containing a version among many, e.g. compatibility rules or advisories.
+ * <p/>
+ * Centered interval tree: each node holds ranges touching its center, sorted by lower bound and by upper bound,
+ * ranges ending before the center go left and ranges starting after it go right. A lookup descends one path
+ * and at each node scans only a prefix of matching ranges, O(log n + k) for k matches. Immutable.
+ * Empty ranges are not indexed, duplicates are kept.
+ */
+public class VersionRangeIndex {
+
+    private final Node root;
+    /** Indexed ranges by lower bound, for batch lookups. */
+    private final VersionRange[] byLowerBound;
+
+    private VersionRangeIndex(List<VersionRange> ranges) {
+        this.root = build(ranges);
+        this.byLowerBound = ranges.toArray(new VersionRange[0]);
+        Arrays.sort(byLowerBound, VersionRange.BY_LOWER_BOUND);
+    }
+
+    public static VersionRangeIndex of(VersionRange... ranges) {
+        return of(Arrays.asList(ranges));
+    }
+
+    public static VersionRangeIndex of(Collection<VersionRange> ranges) {
+        List<VersionRange> nonEmpty = new ArrayList<>(ranges.size());
+        for (VersionRange range : ranges) {
+            if (!Objects.requireNonNull(range).isEmpty()) {
+                nonEmpty.add(range);
+            }
+        }
+        return new VersionRangeIndex(nonEmpty);
+    }
+
+    /**
+     * @return number of indexed ranges
+     */
+    public int size() {
+        return byLowerBound.length;
+    }
+
+    /**
+     * @return ranges containing the version, in no particular order
+     */
+    public List<VersionRange> find(Version version) {
+        Objects.requireNonNull(version);
+        List<VersionRange> found = new ArrayList<>();
+        for (Node node = root; node != null; ) {
+            if (node.center == null) {
+                found.addAll(Arrays.asList(node.byLowerBound));
+                break;
+            }
+            int cmp = version.compareTo(node.center);
+            if (cmp < 0) {
+                // every range here ends at or after the center, so only the lower bound matters
+                for (VersionRange range : node.byLowerBound) {
+                    if (!range.startsBeforeOrAt(version)) {
+                        break;
+                    }
+                    found.add(range);
+                }
+                node = node.left;
+            } else if (cmp > 0) {
+                for (VersionRange range : node.byUpperBoundDescending) {
+                    if (!range.endsAfterOrAt(version)) {
+                        break;
+                    }
+                    found.add(range);
+                }
+                node = node.right;
+            } else {
+                found.addAll(Arrays.asList(node.containingCenter));
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Matches versions sorted in ascending order in one pass: ranges become active as versions reach
+     * their lower bounds and retire as versions pass their upper bounds, O((n + m) log n + k) in total.
+     *
+     * @return ranges containing each version, in the order of versions
+     */
+    public List<List<VersionRange>> findAll(List<Version> sortedVersions) {
+        List<List<VersionRange>> found = new ArrayList<>(sortedVersions.size());
+        PriorityQueue<VersionRange> active = new PriorityQueue<>(VersionRange.BY_UPPER_BOUND);
+        int next = 0;
+        Version previous = null;
+        for (Version version : sortedVersions) {
+            Objects.requireNonNull(version);
+            if (previous != null && previous.compareTo(version) > 0) {
+                throw new IllegalArgumentException("Versions must be sorted: " + previous + " > " + version);
+            }
+            previous = version;
+            while (next < byLowerBound.length && byLowerBound[next].startsBeforeOrAt(version)) {
+                active.add(byLowerBound[next++]);
+            }
+            while (!active.isEmpty() && !active.peek().endsAfterOrAt(version)) {
+                active.poll();
+            }
+            found.add(new ArrayList<>(active));
+        }
+        return found;
+    }
+
+    /**
+     * The center is the median bound, a range having it as a bound stays in the node, so every level shrinks.
+     */
+    private static Node build(List<VersionRange> ranges) {
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        List<Version> bounds = new ArrayList<>(ranges.size() * 2);
+        for (VersionRange range : ranges) {
+            if (range.getLowerBound() != null) {
+                bounds.add(range.getLowerBound());
+            }
+            if (range.getUpperBound() != null) {
+                bounds.add(range.getUpperBound());
+            }
+        }
+        if (bounds.isEmpty()) {
+            // only unbounded ranges
+            return new Node(null, ranges, null, null);
+        }
+        bounds.sort(null);
+        Version center = bounds.get(bounds.size() / 2);
+        List<VersionRange> left = new ArrayList<>();
+        List<VersionRange> right = new ArrayList<>();
+        List<VersionRange> touching = new ArrayList<>();
+        for (VersionRange range : ranges) {
+            if (range.getUpperBound() != null && range.getUpperBound().compareTo(center) < 0) {
+                left.add(range);
+            } else if (range.getLowerBound() != null && range.getLowerBound().compareTo(center) > 0) {
+                right.add(range);
+            } else {
+                touching.add(range);
+            }
+        }
+        return new Node(center, touching, build(left), build(right));
+    }
+
+    private static final class Node {
+
+        /** Null when all ranges of the node are unbounded. */
+        final Version center;
+        final VersionRange[] byLowerBound;
+        final VersionRange[] byUpperBoundDescending;
+        /** Ranges touching the center except those excluding it as a bound. */
+        final VersionRange[] containingCenter;
+        final Node left;
+        final Node right;
+
+        Node(Version center, List<VersionRange> ranges, Node left, Node right) {
+            this.center = center;
+            this.byLowerBound = ranges.toArray(new VersionRange[0]);
+            Arrays.sort(byLowerBound, VersionRange.BY_LOWER_BOUND);
+            this.byUpperBoundDescending = ranges.toArray(new VersionRange[0]);
+            Arrays.sort(byUpperBoundDescending, VersionRange.BY_UPPER_BOUND.reversed());
+            this.containingCenter = center == null
+                    ? byLowerBound
+                    : ranges.stream().filter(range -> range.contains(center)).toArray(VersionRange[]::new);
+            this.left = left;
+            this.right = right;
+        }
+    }
+}
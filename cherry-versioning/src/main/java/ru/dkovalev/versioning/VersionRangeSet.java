@@ -0,0 +1,219 @@
+package ru.dkovalev.versioning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Union of version ranges, e.g. (1.0,2.0),[3.1,4.0)
+ * <p/>
+ * Ranges are normalized to sorted, non-overlapping and non-adjacent ones, so a version is looked up
+ * by binary search and set operations are linear merges of sorted ranges. Immutable.
+ */
+public class VersionRangeSet {
+
+    private static final VersionRangeSet EMPTY = new VersionRangeSet(Collections.emptyList());
+
+    private final List<VersionRange> ranges;
+
+    private VersionRangeSet(List<VersionRange> ranges) {
+        this.ranges = ranges;
+    }
+
+    public static VersionRangeSet empty() {
+        return EMPTY;
+    }
+
+    public static VersionRangeSet of(VersionRange... ranges) {
+        return of(Arrays.asList(ranges));
+    }
+
+    public static VersionRangeSet of(Collection<VersionRange> ranges) {
+        List<VersionRange> sorted = new ArrayList<>(ranges.size());
+        for (VersionRange range : ranges) {
+            if (!Objects.requireNonNull(range).isEmpty()) {
+                sorted.add(range);
+            }
+        }
+        sorted.sort(VersionRange.BY_LOWER_BOUND);
+        List<VersionRange> merged = new ArrayList<>(sorted.size());
+        for (VersionRange range : sorted) {
+            int last = merged.size() - 1;
+            if (last >= 0 && connected(merged.get(last), range)) {
+                merged.set(last, span(merged.get(last), range));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged.isEmpty() ? EMPTY : new VersionRangeSet(Collections.unmodifiableList(merged));
+    }
+
+    /**
+     * Builds a set from comma separated {@link VersionRange#fromSpec(String) range specifications},
+     * e.g. "(1.0,2.0),[3.1,4.0)". Ranges may overlap and come in any order.
+     */
+    public static VersionRangeSet fromSpec(String spec) {
+        Objects.requireNonNull(spec);
+        List<VersionRange> ranges = new ArrayList<>();
+        int i = skipSpaces(spec, 0);
+        while (true) {
+            int end = i;
+            while (end < spec.length() && spec.charAt(end) != ']' && spec.charAt(end) != ')') {
+                end++;
+            }
+            if (end == spec.length()) {
+                throw new IllegalArgumentException("Invalid version range specification: " + spec);
+            }
+            ranges.add(VersionRange.fromSpec(spec.substring(i, end + 1)));
+            i = skipSpaces(spec, end + 1);
+            if (i == spec.length()) {
+                break;
+            }
+            if (spec.charAt(i) != ',') {
+                throw new IllegalArgumentException("Invalid version range specification: " + spec);
+            }
+            i = skipSpaces(spec, i + 1);
+        }
+        return of(ranges);
+    }
+
+    private static int skipSpaces(String spec, int i) {
+        while (i < spec.length() && spec.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return sorted disjoint ranges
+     */
+    public List<VersionRange> getRanges() {
+        return ranges;
+    }
+
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    /**
+     * O(log n) in the number of ranges: only the last range starting at or before the version may contain it.
+     */
+    public boolean contains(Version version) {
+        Objects.requireNonNull(version);
+        int low = 0;
+        int high = ranges.size() - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Version lowerBound = ranges.get(mid).getLowerBound();
+            if (lowerBound == null || lowerBound.compareTo(version) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return candidate >= 0 && ranges.get(candidate).contains(version);
+    }
+
+    public VersionRangeSet union(VersionRangeSet other) {
+        List<VersionRange> all = new ArrayList<>(ranges.size() + other.ranges.size());
+        all.addAll(ranges);
+        all.addAll(other.ranges);
+        return of(all);
+    }
+
+    /**
+     * Sweeps both sorted lists once, the range ending first is advanced.
+     */
+    public VersionRangeSet intersection(VersionRangeSet other) {
+        List<VersionRange> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < ranges.size() && j < other.ranges.size()) {
+            VersionRange a = ranges.get(i);
+            VersionRange b = other.ranges.get(j);
+            VersionRange lower = VersionRange.BY_LOWER_BOUND.compare(a, b) >= 0 ? a : b;
+            VersionRange upper = VersionRange.BY_UPPER_BOUND.compare(a, b) <= 0 ? a : b;
+            VersionRange common = VersionRange.of(
+                    lower.getLowerBound(), lower.isLowerBoundInclusive(),
+                    upper.getUpperBound(), upper.isUpperBoundInclusive());
+            if (!common.isEmpty()) {
+                result.add(common);
+            }
+            if (upper == a) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result.isEmpty() ? EMPTY : new VersionRangeSet(Collections.unmodifiableList(result));
+    }
+
+    /**
+     * Gaps between the ranges, bounds flip inclusiveness.
+     */
+    public VersionRangeSet complement() {
+        List<VersionRange> gaps = new ArrayList<>(ranges.size() + 1);
+        Version gapStart = null;
+        boolean gapStartInclusive = false;
+        boolean boundedAbove = true;
+        for (VersionRange range : ranges) {
+            if (range.getLowerBound() != null) {
+                gaps.add(VersionRange.of(gapStart, gapStartInclusive, range.getLowerBound(), !range.isLowerBoundInclusive()));
+            }
+            if (range.getUpperBound() == null) {
+                boundedAbove = false;
+                break;
+            }
+            gapStart = range.getUpperBound();
+            gapStartInclusive = !range.isUpperBoundInclusive();
+        }
+        if (boundedAbove) {
+            gaps.add(VersionRange.of(gapStart, gapStartInclusive, null, false));
+        }
+        return gaps.isEmpty() ? EMPTY : new VersionRangeSet(Collections.unmodifiableList(gaps));
+    }
+
+    /**
+     * @return true if the ranges overlap or touch, so their span has no gap; a starts no later than b
+     */
+    private static boolean connected(VersionRange a, VersionRange b) {
+        if (a.getUpperBound() == null || b.getLowerBound() == null) {
+            return true;
+        }
+        int cmp = a.getUpperBound().compareTo(b.getLowerBound());
+        return cmp > 0 || cmp == 0 && (a.isUpperBoundInclusive() || b.isLowerBoundInclusive());
+    }
+
+    /**
+     * @return range from the start of a to the further end of a and b; a starts no later than b
+     */
+    private static VersionRange span(VersionRange a, VersionRange b) {
+        VersionRange upper = VersionRange.BY_UPPER_BOUND.compare(a, b) >= 0 ? a : b;
+        return VersionRange.of(a.getLowerBound(), a.isLowerBoundInclusive(), upper.getUpperBound(), upper.isUpperBoundInclusive());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        VersionRangeSet that = (VersionRangeSet) o;
+        return ranges.equals(that.ranges);
+    }
+
+    @Override
+    public int hashCode() {
+        return ranges.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "VersionRangeSet{" +
+                "ranges=" + ranges +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package ru.dkovalev.versioning
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class VersionCatalogSpec extends Specification {
+
+    def catalog = new VersionCatalog()
+
+    def setup() {
+        catalog.addAll('lib', ['1.0', '1.5', '2.0', '2.1', '3.0', '3.5.1', '4.0'].collect { new Version(it) })
+    }
+
+    def "finds highest version satisfying all constraints"() {
+        expect:
+        catalog.findHighest('lib', constraints.collect { VersionRange.fromSpec(it) }) == expected
+
+        where:
+        constraints                  | expected
+        []                           | new Version('4.0')
+        ['[1.0,3.0)']                | new Version('2.1')
+        ['[1.0,3.0)', '(,2.0]']      | new Version('2.0')
+        ['(1.0,)', '(,1.5)']         | null
+        ['[3.5,3.6)']                | new Version('3.5.1')
+        ['(,1.0)']                   | null
+    }
+
+    def "finds lowest version satisfying all constraints"() {
+        expect:
+        catalog.findLowest('lib', constraints.collect { VersionRange.fromSpec(it) }) == expected
+
+        where:
+        constraints                  | expected
+        []                           | new Version('1.0')
+        ['(1.0,3.0)']                | new Version('1.5')
+        ['(1.5,)', '[2.1,4.0]']      | new Version('2.1')
+        ['(4.0,)']                   | null
+    }
+
+    def "finds versions in range set"() {
+        given:
+        def allowed = VersionRangeSet.fromSpec('[1.2,2.0),(2.1,3.5)')
+
+        expect:
+        catalog.findHighest('lib', allowed) == new Version('3.0')
+        catalog.findLowest('lib', allowed) == new Version('1.5')
+        catalog.findHighest('lib', VersionRangeSet.empty()) == null
+    }
+
+    def "returns null for unknown artifact"() {
+        expect:
+        catalog.findHighest('unknown') == null
+        catalog.getVersions('unknown').isEmpty()
+    }
+
+    def "keeps versions sorted and stores equal versions once"() {
+        when:
+        catalog.add('lib', new Version('0.5'))
+        catalog.add('lib', new Version('2.0.0'))
+
+        then:
+        catalog.getVersions('lib')*.version == ['0.5', '1.0', '1.5', '2.0', '2.1', '3.0', '3.5.1', '4.0']
+    }
+
+    def "publishes updates as new snapshots"() {
+        given:
+        def snapshot = catalog.getVersions('lib')
+
+        when:
+        catalog.add('lib', new Version('5.0'))
+        def removed = catalog.remove('lib', new Version('1.0'))
+
+        then:
+        removed
+        !catalog.remove('lib', new Version('1.0'))
+        snapshot.size() == 7
+        catalog.getVersions('lib').size() == 7
+        catalog.findHighest('lib') == new Version('5.0')
+        catalog.findLowest('lib') == new Version('1.5')
+    }
+
+    def "forgets artifact without versions"() {
+        when:
+        catalog.add('other', new Version('1.0'))
+        catalog.remove('other', new Version('1.0'))
+
+        then:
+        catalog.artifacts == ['lib'] as Set
+    }
+
+    def "snapshots are read only"() {
+        when:
+        catalog.getVersions('lib').add(new Version('9.0'))
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+
+    def "keeps concurrent updates"() {
+        given:
+        def executor = Executors.newFixedThreadPool(4)
+        def start = new CountDownLatch(1)
+
+        when:
+        (0..<4).each { t ->
+            executor.submit {
+                start.await()
+                (0..<250).each { i -> catalog.add('concurrent', new Version("$t.$i")) }
+            }
+        }
+        start.countDown()
+        executor.shutdown()
+        executor.awaitTermination(10, TimeUnit.SECONDS)
+
+        then:
+        catalog.getVersions('concurrent').size() == 1000
+    }
+}
@@ -0,0 +1,63 @@
+package ru.dkovalev.versioning
+
+import spock.lang.Specification
+
+class VersionInternerSpec extends Specification {
+
+    def "returns shared instance of the same text"() {
+        given:
+        def interner = new VersionInterner(16)
+
+        expect:
+        interner.intern('1.2.3').is(interner.intern(new StringBuilder('1.2.3')))
+    }
+
+    def "distinguishes texts of equal versions"() {
+        given:
+        def interner = new VersionInterner(16)
+        def v1 = interner.intern('1.0')
+        def v2 = interner.intern('1')
+
+        expect:
+        v1 == v2
+        v1.version == '1.0'
+        v2.version == '1'
+    }
+
+    def "replaces colliding version"() {
+        given:
+        def interner = new VersionInterner(1)
+        def v1 = interner.intern('1.0')
+        interner.intern('2.0')
+
+        expect:
+        !interner.intern('1.0').is(v1)
+        interner.intern('1.0') == v1
+    }
+
+    def "uses components count"() {
+        expect:
+        new VersionInterner(16, 2).intern('1.2').componentsCount == 2
+    }
+
+    def "rounds capacity up to power of two"() {
+        expect:
+        new VersionInterner(capacity).capacity == slots
+
+        where:
+        capacity | slots
+        1        | 1
+        2        | 2
+        3        | 4
+        1000     | 1024
+    }
+
+    def "validates capacity"() {
+        when:
+        new VersionInterner(0)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Capacity must be in 1..2^30: 0'
+    }
+}
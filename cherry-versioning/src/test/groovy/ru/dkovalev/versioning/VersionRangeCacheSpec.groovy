@@ -0,0 +1,91 @@
+package ru.dkovalev.versioning
+
+import spock.lang.Specification
+
+class VersionRangeCacheSpec extends Specification {
+
+    def "returns cached range"() {
+        given:
+        def cache = new VersionRangeCache(16)
+
+        when:
+        def first = cache.get('[1.0,2.0)')
+        def second = cache.get('[1.0,2.0)')
+
+        then:
+        first.is(second)
+        first == VersionRange.fromSpec('[1.0,2.0)')
+        cache.misses == 1
+        cache.hits == 1
+        cache.evictions == 0
+        cache.size() == 1
+    }
+
+    def "evicts beyond capacity"() {
+        given:
+        def cache = new VersionRangeCache(3)
+
+        when:
+        (1..5).each { cache.get("[$it.0,)") }
+
+        then:
+        cache.size() == 3
+        cache.misses == 5
+        cache.evictions == 2
+    }
+
+    def "spares recently used entries"() {
+        given:
+        def cache = new VersionRangeCache(2)
+        def hot = cache.get('[1.0,)')
+        cache.get('[2.0,)')
+
+        when:
+        cache.get('[1.0,)')
+        cache.get('[3.0,)')
+
+        then:
+        cache.get('[1.0,)').is(hot)
+        cache.evictions == 1
+    }
+
+    def "spares entries used since the last sweep until the unused ones are evicted"() {
+        given: "a full cache with every other entry used once"
+        def cache = new VersionRangeCache(64)
+        def specs = (1..64).collect { "[$it.0,)".toString() }
+        specs.each { cache.get(it) }
+        def used = specs.findAll { specs.indexOf(it) % 2 == 0 }
+        used.each { cache.get(it) }
+
+        when: "as many one-off specs are looked up as there are unused entries"
+        (1..32).each { cache.get("[0.$it,)".toString()) }
+        def hits = cache.hits
+        used.each { cache.get(it) }
+
+        then:
+        cache.evictions == 32
+        cache.hits - hits == used.size()
+    }
+
+    def "does not cache invalid specs"() {
+        given:
+        def cache = new VersionRangeCache(2)
+
+        when:
+        cache.get('bla')
+
+        then:
+        thrown(IllegalArgumentException)
+        cache.size() == 0
+        cache.misses == 1
+    }
+
+    def "validates capacity"() {
+        when:
+        new VersionRangeCache(0)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Capacity must be >= 1: 0'
+    }
+}
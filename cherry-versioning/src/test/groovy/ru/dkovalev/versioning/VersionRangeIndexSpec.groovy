@@ -0,0 +1,84 @@
+package ru.dkovalev.versioning
+
+import spock.lang.Specification
+
+class VersionRangeIndexSpec extends Specification {
+
+    def ranges = ['(,1.0)', '[1.0,2.0]', '(1.0,3.0)', '[2.0,2.0]', '(2.0,)', '(,)', '[3.0,4.0)', '(1.5,1.5)']
+            .collect { VersionRange.fromSpec(it) }
+
+    def "finds ranges containing version"() {
+        given:
+        def index = VersionRangeIndex.of(ranges)
+
+        expect:
+        index.find(new Version(version)).collect { it }.toSet() == expected.collect { VersionRange.fromSpec(it) }.toSet()
+
+        where:
+        version | expected
+        '0.5'   | ['(,1.0)', '(,)']
+        '1.0'   | ['[1.0,2.0]', '(,)']
+        '1.5'   | ['[1.0,2.0]', '(1.0,3.0)', '(,)']
+        '2.0'   | ['[1.0,2.0]', '(1.0,3.0)', '[2.0,2.0]', '(,)']
+        '3.0'   | ['(2.0,)', '(,)', '[3.0,4.0)']
+        '4.0'   | ['(2.0,)', '(,)']
+    }
+
+    def "does not index empty ranges"() {
+        expect:
+        VersionRangeIndex.of(ranges).size() == 7
+        VersionRangeIndex.of().find(new Version('1.0')).isEmpty()
+    }
+
+    def "indexes unbounded ranges only"() {
+        expect:
+        VersionRangeIndex.of(VersionRange.unbounded(), VersionRange.unbounded()).find(new Version('1.0')).size() == 2
+    }
+
+    def "keeps duplicates"() {
+        expect:
+        VersionRangeIndex.of(VersionRange.fromSpec('[1.0,2.0]'), VersionRange.fromSpec('[1.0,2.0]')).find(new Version('1.0')).size() == 2
+    }
+
+    def "matches scan of all ranges"() {
+        given:
+        def random = new Random(42)
+        def randomVersion = { new Version("${random.nextInt(20)}.${random.nextInt(3)}") }
+        def randomRanges = (1..500).collect {
+            def a = randomVersion()
+            def b = randomVersion()
+            def lower = random.nextInt(8) == 0 ? null : [a, b].min()
+            def upper = random.nextInt(8) == 0 ? null : [a, b].max()
+            VersionRange.of(lower, random.nextBoolean(), upper, random.nextBoolean())
+        }
+        def index = VersionRangeIndex.of(randomRanges)
+        def versions = (1..300).collect { randomVersion() }.sort()
+
+        expect:
+        versions.every { v ->
+            def expected = randomRanges.findAll { !it.isEmpty() && it.contains(v) }
+            index.find(v)*.toString().sort() == expected*.toString().sort()
+        }
+        index.findAll(versions).withIndex().every { found, i ->
+            found*.toString().sort() == index.find(versions[i])*.toString().sort()
+        }
+    }
+
+    def "finds ranges for sorted versions"() {
+        given:
+        def index = VersionRangeIndex.of(ranges)
+        def versions = ['0.5', '1.0', '1.0', '2.0', '4.0'].collect { new Version(it) }
+
+        expect:
+        index.findAll(versions)*.size() == [2, 2, 2, 4, 2]
+    }
+
+    def "validates order of versions"() {
+        when:
+        VersionRangeIndex.of(ranges).findAll([new Version('2.0'), new Version('1.0')])
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Versions must be sorted: 2.0 > 1.0'
+    }
+}
@@ -0,0 +1,113 @@
+package ru.dkovalev.versioning
+
+import spock.lang.Specification
+
+class VersionRangeSetSpec extends Specification {
+
+    def "normalizes to sorted disjoint ranges"() {
+        expect:
+        VersionRangeSet.fromSpec(spec) == VersionRangeSet.fromSpec(normalized)
+        VersionRangeSet.fromSpec(spec).ranges.size() == count
+
+        where:
+        spec                          | normalized          | count
+        '[3.1,4.0),(1.0,2.0)'         | '(1.0,2.0),[3.1,4.0)' | 2
+        '[1.0,3.0),[2.0,4.0)'         | '[1.0,4.0)'         | 1
+        '[1.0,2.0),[2.0,3.0]'         | '[1.0,3.0]'         | 1
+        '[1.0,2.0],(2.0,3.0]'         | '[1.0,3.0]'         | 1
+        '[1.0,5.0],[2.0,3.0)'         | '[1.0,5.0]'         | 1
+        '(,2.0),[1.0,)'               | '(,)'               | 1
+        '(1.0,2.0), (2.0,3.0)'        | '(1.0,2.0),(2.0,3.0)' | 2
+    }
+
+    def "drops empty ranges"() {
+        expect:
+        VersionRangeSet.fromSpec('(1.0,1.0),[2.0,1.0]').isEmpty()
+        VersionRangeSet.fromSpec('[1.0,1.0]').ranges == [VersionRange.closed(new Version('1.0'), new Version('1.0'))]
+    }
+
+    def "contains"() {
+        given:
+        def set = VersionRangeSet.fromSpec('(,1.0),(1.0,2.0],[3.1,4.0),(5.0,)')
+
+        expect:
+        set.contains(new Version(version)) == contained
+
+        where:
+        version | contained
+        '0.5'   | true
+        '1.0'   | false
+        '1.5'   | true
+        '2.0'   | true
+        '3.0'   | false
+        '3.1'   | true
+        '4.0'   | false
+        '5.0'   | false
+        '9.0'   | true
+    }
+
+    def "empty set contains nothing"() {
+        expect:
+        !VersionRangeSet.empty().contains(new Version('1.0'))
+    }
+
+    def "builds union"() {
+        expect:
+        VersionRangeSet.fromSpec(a).union(VersionRangeSet.fromSpec(b)) == VersionRangeSet.fromSpec(union)
+
+        where:
+        a                     | b                     | union
+        '[1.0,2.0)'           | '[3.0,4.0)'           | '[1.0,2.0),[3.0,4.0)'
+        '[1.0,2.0)'           | '[2.0,4.0)'           | '[1.0,4.0)'
+        '(,1.0],[5.0,)'       | '(1.0,5.0)'           | '(,)'
+    }
+
+    def "builds intersection"() {
+        expect:
+        VersionRangeSet.fromSpec(a).intersection(VersionRangeSet.fromSpec(b)) == result
+
+        where:
+        a                     | b                     | result
+        '[1.0,3.0)'           | '(2.0,4.0]'           | VersionRangeSet.fromSpec('(2.0,3.0)')
+        '[1.0,2.0),[3.0,4.0)' | '[1.5,3.5]'           | VersionRangeSet.fromSpec('[1.5,2.0),[3.0,3.5]')
+        '[1.0,2.0)'           | '[2.0,3.0)'           | VersionRangeSet.empty()
+        '[1.0,2.0]'           | '[2.0,3.0)'           | VersionRangeSet.fromSpec('[2.0,2.0]')
+        '(,)'                 | '(1.0,2.0),[3.0,)'    | VersionRangeSet.fromSpec('(1.0,2.0),[3.0,)')
+    }
+
+    def "builds complement"() {
+        expect:
+        VersionRangeSet.fromSpec(spec).complement() == result
+
+        where:
+        spec                  | result
+        '[1.0,2.0)'           | VersionRangeSet.fromSpec('(,1.0),[2.0,)')
+        '(,1.0],(2.0,3.0)'    | VersionRangeSet.fromSpec('(1.0,2.0],[3.0,)')
+        '(,)'                 | VersionRangeSet.empty()
+    }
+
+    def "complement of empty set is unbounded"() {
+        expect:
+        VersionRangeSet.empty().complement() == VersionRangeSet.of(VersionRange.unbounded())
+    }
+
+    def "complement of complement is the same set"() {
+        given:
+        def set = VersionRangeSet.fromSpec('(,1.0),(1.0,2.0],[3.1,4.0),(5.0,)')
+
+        expect:
+        set.complement().complement() == set
+        set.intersection(set.complement()).isEmpty()
+    }
+
+    def "validates specification"() {
+        when:
+        VersionRangeSet.fromSpec(spec)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        spec << ['', '[1.0,2.0', '[1.0,2.0);[3.0,4.0)', '[1.0,2.0),']
+    }
+}
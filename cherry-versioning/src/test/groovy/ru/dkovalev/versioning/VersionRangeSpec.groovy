@@ -138,4 +138,56 @@ class VersionRangeSpec extends Specification {
         range.contains(new Version('1.5'))
         range.contains(new Version('2.0'))
     }
+
+    def "exposes bounds"() {
+        given:
+        def range = VersionRange.fromSpec('(1.0,2.0]')
+
+        expect:
+        range.lowerBound == new Version('1.0')
+        !range.lowerBoundInclusive
+        range.upperBound == new Version('2.0')
+        range.upperBoundInclusive
+    }
+
+    def "checks emptiness"() {
+        expect:
+        VersionRange.fromSpec(spec).isEmpty() == empty
+
+        where:
+        spec        | empty
+        '(1.0,1.0)' | true
+        '[1.0,1.0)' | true
+        '[2.0,1.0]' | true
+        '[1.0,1.0]' | false
+        '(,)'       | false
+        '(1.0,)'    | false
+    }
+
+    def "validates specification"() {
+        when:
+        VersionRange.fromSpec(spec)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Invalid version range specification: ' + spec
+
+        where:
+        spec << ['', '()', '1.0,2.0', '{1.0,2.0)', '[1.0,2.0}', '[1.0;2.0]', '[1.0,2.0,3.0]', '[1.0]']
+    }
+
+    def "validates bound versions"() {
+        when:
+        VersionRange.fromSpec('[1.a,2.0]')
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Invalid version format: 1.a'
+    }
+
+    def "skips whitespace around bounds"() {
+        expect:
+        VersionRange.fromSpec('[\t1.0 ,\t]') == VersionRange.leftClosed(new Version('1.0'))
+        VersionRange.fromSpec('( , )') == VersionRange.unbounded()
+    }
 }
@@ -115,4 +115,119 @@ class VersionSpec extends Specification {
         def e = thrown(IllegalArgumentException)
         e.message == 'Only 4 components supported: 1.0.0.0.0'
     }
+
+    def "parses multi-digit components"() {
+        given:
+        def v = new Version('10.200.3000')
+
+        expect:
+        v.canonicalVersion == '10.200.3000.0'
+        v.compareTo(new Version('10.200.999')) > 0
+    }
+
+    def "parses char sequence"() {
+        given:
+        def v = Version.parse(new StringBuilder('1.2.3'))
+
+        expect:
+        v.version == '1.2.3'
+        v.canonicalVersion == '1.2.3.0'
+        v == new Version('1.2.3')
+    }
+
+    def "validates parsed version format"() {
+        when:
+        Version.parse(s)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Invalid version format: ' + s
+
+        where:
+        s << ['', '.', '1.', '.1', '1..2', '1.a', '1.0-SNAPSHOT', ' 1']
+    }
+
+    def "validates component range"() {
+        when:
+        Version.parse('1.2147483648')
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Version component is too large: 1.2147483648'
+    }
+
+    def "validates max component count of parsed version"() {
+        when:
+        Version.parse('1.0.0', 2)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == 'Only 2 components supported: 1.0.0'
+    }
+
+    def "validates the rest of a version after a component too wide to pack"() {
+        when:
+        Version.parse(s)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == message
+
+        where:
+        s                | message
+        '70000.a'        | 'Invalid version format: 70000.a'
+        '1.70000.0.0.0'  | 'Only 4 components supported: 1.70000.0.0.0'
+        '1.2.3.4.70000'  | 'Only 4 components supported: 1.2.3.4.70000'
+    }
+
+    def "orders packed and wide versions"() {
+        given:
+        def v1 = new Version(s1, count1)
+        def v2 = new Version(s2, count2)
+
+        expect:
+        v1.compareTo(v2) < 0
+        v2.compareTo(v1) > 0
+
+        where:
+        s1                | count1 | s2                | count2
+        '1'               | 4      | '40000'           | 4
+        '40000.1'         | 4      | '40000.65535'     | 4
+        '65535'           | 4      | '65536'           | 4
+        '1.65536'         | 4      | '2'               | 4
+        '1.2.3.4'         | 4      | '1.2.3.4.1'       | 5
+        '1.0.0.0.70000'   | 5      | '1.0.0.1'         | 4
+    }
+
+    def "checks equality of wide versions"() {
+        given:
+        def v1 = new Version(s1, count)
+        def v2 = new Version(s2, count)
+
+        expect:
+        v1.equals(v2)
+        v1.hashCode() == v2.hashCode()
+        v1.compareTo(v2) == 0
+        v1.canonicalVersion == canonical
+
+        where:
+        s1           | s2                | count | canonical
+        '70000.1'    | '70000.1.0.0'     | 4     | '70000.1.0.0'
+        '1.2.3.4.5'  | '1.2.3.4.5.0'     | 6     | '1.2.3.4.5.0'
+        '65535.65535.65535.65535' | '65535.65535.65535.65535' | 4 | '65535.65535.65535.65535'
+    }
+
+    def "does not equal version of other components count"() {
+        expect:
+        !new Version('1.2', 2).equals(new Version('1.2', 4))
+        new Version('1.2', 2).compareTo(new Version('1.2', 4)) == 0
+    }
+
+    def "sorts mixed versions"() {
+        given:
+        def versions = ['2', '1.70000', '1.65535.1', '40000', '1.0.0.0', '0.1'].collect { new Version(it) }
+
+        expect:
+        versions.sort(false)*.version == ['0.1', '1.0.0.0', '1.65535.1', '1.70000', '2', '40000']
+    }
 }